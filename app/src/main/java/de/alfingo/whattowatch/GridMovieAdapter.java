@@ -2,7 +2,11 @@ package de.alfingo.whattowatch;
 
 import android.content.Context;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,8 +16,15 @@ import android.widget.TextView;
 import com.squareup.picasso.Callback;
 import com.squareup.picasso.Picasso;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import de.alfingo.whattowatch.data.FavoriteIds;
+import de.alfingo.whattowatch.utilities.IntSet;
 import de.alfingo.whattowatch.utilities.MovieDBUtil;
 
 /**
@@ -22,11 +33,24 @@ import de.alfingo.whattowatch.utilities.MovieDBUtil;
  * @since 22.01.2017
  */
 
-class GridMovieAdapter extends RecyclerView.Adapter<GridMovieAdapter.GridMovieViewHolder>{
+class GridMovieAdapter extends RecyclerView.Adapter<GridMovieAdapter.GridMovieViewHolder>
+        implements FavoriteIds.FavoriteIdsListener {
 
     @SuppressWarnings("unused")
     private final static String TAG = GridMovieAdapter.class.getSimpleName();
 
+    /**
+     * The payload for rebinding only the favorite badge.
+     */
+    private final static Object PAYLOAD_FAVORITE = new Object();
+
+    /**
+     * Computes the differences between the old and the new movies, off the main thread.
+     */
+    private final static ExecutorService sDiffExecutor = Executors.newSingleThreadExecutor();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
     /**
      * The class responsible for handling clicks on movies.
      */
@@ -37,12 +61,44 @@ class GridMovieAdapter extends RecyclerView.Adapter<GridMovieAdapter.GridMovieVi
      */
     private ArrayList<Movie> mMovies;
 
+    /**
+     * The IDs of the movies, no movie is shown twice.
+     */
+    private IntSet mMovieIds = new IntSet();
+
+    /**
+     * Counts the lists set, the diff of an older one is thrown away.
+     */
+    private int mGeneration;
+
+    /**
+     * The changes which came while a diff was computed, they are applied after it in order.
+     * Null if no diff is being computed.
+     */
+    private ArrayDeque<Runnable> mPendingChanges;
+
+    /**
+     * The MovieDB size the posters are loaded in, null for the default one.
+     */
+    private String mPosterSize;
+
     /**
      * An constructor for the adapter. Setting the click listener.
      * @param movieClickListener the class handling the clicks.
      */
     GridMovieAdapter(GridMovieClickListener movieClickListener) {
         mMovieClickListener = movieClickListener;
+        // the movie IDs, so the cells of movies which only moved are not bound again.
+        setHasStableIds(true);
+    }
+
+    /**
+     * Sets how wide the posters are shown, so they are loaded in a size which fits.
+     *
+     * @param widthPixels the width of a cell, in real pixels.
+     */
+    void setPosterWidth(int widthPixels) {
+        mPosterSize = MovieDBUtil.getPosterSize(widthPixels);
     }
 
     @Override
@@ -65,11 +121,60 @@ class GridMovieAdapter extends RecyclerView.Adapter<GridMovieAdapter.GridMovieVi
         // sets the text visible again
         holder.mMovieTitle.setVisibility(View.VISIBLE);
         holder.mMoviePoster.setContentDescription(movie.title);
-        Uri posterUri = MovieDBUtil.getPictureUri(movie.poster_path, null);
+        Uri posterUri = getPosterUri(position);
         Picasso.with(context)
                 .load(posterUri)
                 .placeholder(R.drawable.ic_main_poster_placeholder)
                 .into(holder.mMoviePoster, holder);
+        bindFavorite(holder, movie);
+    }
+
+    /**
+     * Only the favorite badge is bound again when it is the only thing which changed.
+     */
+    @Override
+    public void onBindViewHolder(GridMovieViewHolder holder, int position, List<Object> payloads) {
+        if (!payloads.isEmpty()
+                && Collections.frequency(payloads, PAYLOAD_FAVORITE) == payloads.size())
+            bindFavorite(holder, mMovies.get(position));
+        else
+            onBindViewHolder(holder, position);
+    }
+
+    /**
+     * Shows the heart on favorites, a memory lookup.
+     */
+    private void bindFavorite(GridMovieViewHolder holder, Movie movie) {
+        holder.mFavoriteBadge.setVisibility(
+                FavoriteIds.contains(movie.id) ? View.VISIBLE : View.GONE);
+    }
+
+    /**
+     * Updates the badges of the changed movie.
+     */
+    @Override
+    public void onFavoriteChanged(int movieID) {
+        if (mMovies == null)
+            return;
+        if (movieID == FavoriteIds.ALL_MOVIES) {
+            notifyItemRangeChanged(0, mMovies.size(), PAYLOAD_FAVORITE);
+            return;
+        }
+        for (int i = 0; i < mMovies.size(); i++) {
+            if (mMovies.get(i).id == movieID)
+                notifyItemChanged(i, PAYLOAD_FAVORITE);
+        }
+    }
+
+    /**
+     * The poster of a movie in the size the grid shows it, so a prefetched poster is the one
+     * the cell loads.
+     *
+     * @return the Uri, null if the movie has no poster.
+     */
+    Uri getPosterUri(int position) {
+        String posterPath = mMovies.get(position).poster_path;
+        return posterPath == null ? null : MovieDBUtil.getPictureUri(posterPath, mPosterSize);
     }
 
     @Override
@@ -77,20 +182,206 @@ class GridMovieAdapter extends RecyclerView.Adapter<GridMovieAdapter.GridMovieVi
         return mMovies == null? 0 : mMovies.size();
     }
 
+    @Override
+    public long getItemId(int position) {
+        return mMovies.get(position).id;
+    }
+
     /**
-     * Sets the adapter movies to display the updated information.
+     * Sets the adapter movies to display the updated information. When movies are already
+     * shown the differences are computed in the background, and only the changed cells are
+     * bound once they are known.
      */
     void setMovies(ArrayList<Movie> movies) {
+        final int generation = ++mGeneration;
+        final ArrayList<Movie> newMovies = distinct(movies);
+        final ArrayList<Movie> oldMovies = mMovies;
+
+        // nothing to compare with, so there's nothing to wait for either.
+        if (oldMovies == null || oldMovies.isEmpty() || newMovies.isEmpty()) {
+            mPendingChanges = null;
+            int oldSize = getItemCount();
+            replaceMovies(newMovies);
+            notifyItemRangeRemoved(0, oldSize);
+            notifyItemRangeInserted(0, newMovies.size());
+            return;
+        }
+
+        // the shown movies don't change until the diff is there, the changes wait for it.
+        mPendingChanges = new ArrayDeque<>();
+        sDiffExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult diffResult =
+                        DiffUtil.calculateDiff(new MoviesDiffCallback(oldMovies, newMovies));
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // a newer list came in the meantime.
+                        if (generation != mGeneration)
+                            return;
+                        ArrayDeque<Runnable> pendingChanges = mPendingChanges;
+                        mPendingChanges = null;
+                        replaceMovies(newMovies);
+                        diffResult.dispatchUpdatesTo(GridMovieAdapter.this);
+                        for (Runnable pendingChange : pendingChanges)
+                            pendingChange.run();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Adds a new set of movies to an already existing list, the ones already there are
+     * skipped. Only the new cells are bound.
+     *
+     * @return how many movies were added. While a diff is pending they are added after it and
+     * none are counted, see {@link #runAfterChanges(Runnable)}.
+     */
+    int addMovies(final ArrayList<Movie> movies) {
+        if (mPendingChanges != null) {
+            mPendingChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    addMovies(movies);
+                }
+            });
+            return 0;
+        }
+
+        if (mMovies == null)
+            replaceMovies(new ArrayList<Movie>());
+        int positionStart = mMovies.size();
+        for (Movie movie : movies) {
+            if (mMovieIds.add(movie.id))
+                mMovies.add(movie);
+        }
+        int added = mMovies.size() - positionStart;
+        notifyItemRangeInserted(positionStart, added);
+        return added;
+    }
+
+    /**
+     * Inserts a single movie, only its cell is bound.
+     */
+    void addMovie(final int position, final Movie movie) {
+        if (mPendingChanges != null) {
+            mPendingChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    addMovie(position, movie);
+                }
+            });
+            return;
+        }
+
+        if (mMovies == null)
+            replaceMovies(new ArrayList<Movie>());
+        if (!mMovieIds.add(movie.id))
+            return;
+        int insertPosition = Math.min(position, mMovies.size());
+        mMovies.add(insertPosition, movie);
+        notifyItemInserted(insertPosition);
+    }
+
+    /**
+     * Removes a single movie, the cells after it just move.
+     */
+    void removeMovie(final int movieID) {
+        if (mPendingChanges != null) {
+            mPendingChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    removeMovie(movieID);
+                }
+            });
+            return;
+        }
+
+        if (mMovies == null || !mMovieIds.remove(movieID))
+            return;
+        for (int i = 0; i < mMovies.size(); i++) {
+            if (mMovies.get(i).id == movieID) {
+                mMovies.remove(i);
+                notifyItemRemoved(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs the action once the movies given so far are shown, right away if no diff is still
+     * being computed. For whatever needs the new positions, like scrolling to one.
+     */
+    void runAfterChanges(Runnable action) {
+        if (mPendingChanges != null)
+            mPendingChanges.add(action);
+        else
+            action.run();
+    }
+
+    /**
+     * Makes the movies the shown ones, without notifying anyone.
+     */
+    private void replaceMovies(ArrayList<Movie> movies) {
         mMovies = movies;
-        notifyDataSetChanged();
+        mMovieIds = new IntSet(movies.size());
+        for (Movie movie : movies)
+            mMovieIds.add(movie.id);
+    }
+
+    /**
+     * A copy of the movies without the ones which are there twice, MovieDB pages can overlap
+     * when the ranking changes and the IDs have to be stable.
+     */
+    private static ArrayList<Movie> distinct(List<Movie> movies) {
+        if (movies == null)
+            return new ArrayList<>();
+        ArrayList<Movie> distinctMovies = new ArrayList<>(movies.size());
+        IntSet ids = new IntSet(movies.size());
+        for (Movie movie : movies) {
+            if (ids.add(movie.id))
+                distinctMovies.add(movie);
+        }
+        return distinctMovies;
     }
 
     /**
-     * Adds a new set of movies to an already existing list.
+     * Movies are the same if they have the same ID, they look the same with the same title and
+     * poster.
      */
-    void addMovies(ArrayList<Movie> movies) {
-        mMovies.addAll(movies);
-        notifyDataSetChanged();
+    private static class MoviesDiffCallback extends DiffUtil.Callback {
+
+        private final List<Movie> mOldMovies, mNewMovies;
+
+        MoviesDiffCallback(List<Movie> oldMovies, List<Movie> newMovies) {
+            mOldMovies = oldMovies;
+            mNewMovies = newMovies;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldMovies.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewMovies.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldMovies.get(oldItemPosition).id == mNewMovies.get(newItemPosition).id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            Movie oldMovie = mOldMovies.get(oldItemPosition);
+            Movie newMovie = mNewMovies.get(newItemPosition);
+            return TextUtils.equals(oldMovie.title, newMovie.title)
+                    && TextUtils.equals(oldMovie.poster_path, newMovie.poster_path);
+        }
     }
 
     /**
@@ -120,10 +411,15 @@ class GridMovieAdapter extends RecyclerView.Adapter<GridMovieAdapter.GridMovieVi
          * Movie poster, with scrim for the text.
          */
         ImageView mMoviePoster;
+        /**
+         * The heart shown on favorites.
+         */
+        ImageView mFavoriteBadge;
 
         GridMovieViewHolder(View itemView) {
             super(itemView);
             mMoviePoster = (ImageView) itemView.findViewById(R.id.iv_item_poster);
+            mFavoriteBadge = (ImageView) itemView.findViewById(R.id.iv_item_favorite);
             mMovieTitle = (TextView) itemView.findViewById(R.id.tv_item_title);
             itemView.setOnClickListener(this);
         }
@@ -135,6 +431,9 @@ class GridMovieAdapter extends RecyclerView.Adapter<GridMovieAdapter.GridMovieVi
         @Override
         public void onClick(View v) {
             int adapterPosition = getAdapterPosition();
+            // the cell is being removed right now.
+            if (adapterPosition == RecyclerView.NO_POSITION)
+                return;
             Movie movieClicked = mMovies.get(adapterPosition);
             mMovieClickListener.onClick(movieClicked);
         }
@@ -1,9 +1,12 @@
 package de.alfingo.whattowatch;
 
 import android.content.Intent;
+import android.database.ContentObserver;
 import android.database.Cursor;
+import android.net.Uri;
 import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
 import android.support.annotation.NonNull;
 import android.support.design.widget.BottomNavigationView;
 import android.support.v7.app.AppCompatActivity;
@@ -21,11 +24,15 @@ import com.google.gson.JsonParseException;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import butterknife.BindInt;
 import butterknife.BindString;
 import butterknife.BindView;
 import butterknife.ButterKnife;
+import de.alfingo.whattowatch.data.CatalogCache;
+import de.alfingo.whattowatch.data.FavoriteIds;
 import de.alfingo.whattowatch.data.MoviesContract;
 import de.alfingo.whattowatch.utilities.EndlessScrollingRecyclerView;
 import de.alfingo.whattowatch.utilities.MovieDBUtil;
@@ -81,9 +88,96 @@ public class MainActivity extends AppCompatActivity implements GridMovieAdapter.
     EndlessScrollingRecyclerView mScrollListener;
 
     /**
-     * If the loading task is currently running.
+     * Loads the posters of the next rows before they are scrolled into view.
      */
-    AsyncTask taskRunning;
+    PosterPrefetcher mPosterPrefetcher;
+
+    /**
+     * The loading tasks currently running, more than one if the next pages are prefetched.
+     */
+    final ArrayList<FetchMoviesTask> mRunningTasks = new ArrayList<>();
+
+    /**
+     * The single favorite changes still being read, they are cancelled with the activity.
+     */
+    final ArrayList<FavoriteChangeTask> mFavoriteChangeTasks = new ArrayList<>();
+
+    /**
+     * How many pages the grid may request ahead while the user scrolls.
+     */
+    private static final int MAX_QUEUED_PAGES = 2;
+
+    /**
+     * Runs the loading tasks, so the pages requested ahead load at the same time. They are still
+     * shown in order, see {@link #deliverFinishedTasks()}.
+     */
+    private static final ExecutorService sFetchExecutor =
+            Executors.newFixedThreadPool(MAX_QUEUED_PAGES);
+
+    /**
+     * How many rows beyond the visible ones have their posters loaded ahead.
+     */
+    private static final int PREFETCH_ROWS = 3;
+
+    /**
+     * How many favorites are read from the database at once, the next window is read when the
+     * user scrolls to it.
+     */
+    private static final int FAVORITES_WINDOW_SIZE = 60;
+
+    /**
+     * Only what the grid shows, so a window of favorites stays small.
+     */
+    private static final String[] FAVORITES_PROJECTION = {
+            MoviesContract.FavoriteMoviesEntry.COLUMN_MOVIE_ID,
+            MoviesContract.FavoriteMoviesEntry.COLUMN_TITLE,
+            MoviesContract.FavoriteMoviesEntry.COLUMN_POSTER_PATH
+    };
+
+    /**
+     * The favorites windows read so far, kept while switching tabs until the favorites change.
+     * Null if they have to be read again.
+     */
+    private ArrayList<Movie> mCachedFavorites;
+
+    /**
+     * How many windows are in the cached favorites.
+     */
+    private int mCachedFavoritesPages;
+
+    /**
+     * If the cached favorites are all there are.
+     */
+    private boolean mCachedFavoritesComplete;
+
+    /**
+     * How many favorites were added minus removed since the cached favorites were read, the
+     * windows after them moved by as much in the database.
+     */
+    private int mFavoritesOffsetShift;
+
+    /**
+     * Applies a change of a single favorite to the favorites, or reads them all again when it
+     * is not known which one changed.
+     */
+    private final ContentObserver mFavoritesObserver = new ContentObserver(new Handler()) {
+        @Override
+        public void onChange(boolean selfChange) {
+            onChange(selfChange, null);
+        }
+
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            int movieID = MoviesContract.FavoriteMoviesEntry.getMovieID(uri);
+            if (movieID == MoviesContract.FavoriteMoviesEntry.ALL_MOVIES) {
+                refreshFavorites();
+            } else if (mCachedFavorites != null || mCurrentDisplay == FAVORITE_DISPLAY) {
+                FavoriteChangeTask task = new FavoriteChangeTask();
+                mFavoriteChangeTasks.add(task);
+                task.execute(movieID);
+            }
+        }
+    };
 
     /**
      * The current display, used for avoiding double fetching of movies.
@@ -165,7 +259,7 @@ public class MainActivity extends AppCompatActivity implements GridMovieAdapter.
         mErrorView.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                if (taskRunning == null || taskRunning.getStatus().equals(AsyncTask.Status.FINISHED))
+                if (mRunningTasks.isEmpty())
                     startFetchMoviesTask(mCurrentDisplay, mScrollListener.getCurrentPage());
             }
         });
@@ -177,17 +271,27 @@ public class MainActivity extends AppCompatActivity implements GridMovieAdapter.
         int noOfColumns = (int) (dpWidth / 100);
         mLayoutManager = new GridLayoutManager(this, noOfColumns);
         mMovieAdapter = new GridMovieAdapter(this);
+        // a cell is the width of a column without the margins around the poster.
+        int posterMargins = getResources().getDimensionPixelSize(R.dimen.grid_poster_margin) * 2;
+        mMovieAdapter.setPosterWidth(displayMetrics.widthPixels / noOfColumns - posterMargins);
         mRecyclerView.setAdapter(mMovieAdapter);
         mRecyclerView.setLayoutManager(mLayoutManager);
         mScrollListener =
                 new EndlessScrollingRecyclerView(mLayoutManager) {
                     @Override
                     public void onLoadMore(int page, int totalItemsCount, RecyclerView view) {
-                        if (mCurrentDisplay != FAVORITE_DISPLAY)
-                            startFetchMoviesTask(mCurrentDisplay, page);
+                        startFetchMoviesTask(mCurrentDisplay, page);
                     }
                 };
+        mScrollListener.setMaxQueuedPages(MAX_QUEUED_PAGES);
         mRecyclerView.addOnScrollListener(mScrollListener);
+        mPosterPrefetcher =
+                new PosterPrefetcher(this, mRecyclerView, mMovieAdapter, PREFETCH_ROWS);
+        mRecyclerView.addOnScrollListener(mPosterPrefetcher);
+
+        getContentResolver().registerContentObserver(
+                MoviesContract.FavoriteMoviesEntry.CONTENT_URI, true, mFavoritesObserver);
+        FavoriteIds.addListener(mMovieAdapter);
 
         // if we were already somewhere then we want to get back to it.
         if (savedInstanceState != null) {
@@ -217,6 +321,26 @@ public class MainActivity extends AppCompatActivity implements GridMovieAdapter.
         outState.putBundle(KEY_ADAPTER_STATE_BUNDLE, adapterState);
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // so the cached pages survive until the next start.
+        MovieDBUtil.flushHttpCache();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        getContentResolver().unregisterContentObserver(mFavoritesObserver);
+        FavoriteIds.removeListener(mMovieAdapter);
+        mPosterPrefetcher.cancel();
+        // nothing may reach the grid of a destroyed activity.
+        cancelRunningTasks();
+        for (FavoriteChangeTask task : mFavoriteChangeTasks)
+            task.cancel(true);
+        mFavoriteChangeTasks.clear();
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         // Inflate the menu; this adds items to the action bar if it is present.
@@ -248,6 +372,59 @@ public class MainActivity extends AppCompatActivity implements GridMovieAdapter.
         startActivity(detailsIntent);
     }
 
+    /**
+     * Moves a single favorite in or out of the favorites, newest first like the query. Only its
+     * cell changes in the grid.
+     *
+     * @param movieID  the changed movie.
+     * @param favorite the favorite as it is stored now, null if it is no favorite anymore.
+     */
+    private void applyFavoriteChange(int movieID, Movie favorite) {
+        // the shown favorites are the cached ones.
+        boolean wasFavorite = false;
+        int countChange = 0;
+        if (mCachedFavorites != null) {
+            for (int i = 0; i < mCachedFavorites.size(); i++) {
+                if (mCachedFavorites.get(i).id == movieID) {
+                    mCachedFavorites.remove(i);
+                    wasFavorite = true;
+                    break;
+                }
+            }
+            if (favorite != null)
+                mCachedFavorites.add(0, favorite);
+            countChange = (favorite != null ? 1 : 0) - (wasFavorite ? 1 : 0);
+            mFavoritesOffsetShift += countChange;
+        }
+
+        if (mCurrentDisplay != FAVORITE_DISPLAY)
+            return;
+        // the favorites are still being read, so they are read again.
+        if (mCachedFavorites == null) {
+            refreshFavorites();
+            return;
+        }
+        mMovieAdapter.removeMovie(movieID);
+        if (favorite != null)
+            mMovieAdapter.addMovie(0, favorite);
+        mScrollListener.onItemCountChanged(countChange);
+    }
+
+    /**
+     * Reads the favorites rows read with {@link #FAVORITES_PROJECTION}.
+     */
+    private static ArrayList<Movie> readFavoriteRows(Cursor cursor) {
+        ArrayList<Movie> movies = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            Movie movie = new Movie();
+            movie.id = cursor.getInt(0);
+            movie.title = cursor.getString(1);
+            movie.poster_path = cursor.getString(2);
+            movies.add(movie);
+        }
+        return movies;
+    }
+
     /**
      * Toggles between the Grid movies view and the error message.
      *
@@ -270,26 +447,176 @@ public class MainActivity extends AppCompatActivity implements GridMovieAdapter.
             displayType = 0;
         }
 
-        // we only want to reset grid if we just changed display.
-        if (page == 1)
+        // we only want to reset grid if we just changed display, the pages queued for the old
+        // display are not needed anymore.
+        if (page == 1) {
             mMovieAdapter.setMovies(null);
-        if (taskRunning != null)
-            taskRunning.cancel(true);
-        taskRunning = new FetchMoviesTask().execute(displayType, page);
+            mScrollListener.resetState();
+            mPosterPrefetcher.cancel();
+            cancelRunningTasks();
+            // the favorites read before are still good if they didn't change since.
+            if (displayType == FAVORITE_DISPLAY && mCachedFavorites != null) {
+                showCachedFavorites();
+                return;
+            }
+        }
+        FetchMoviesTask task = new FetchMoviesTask();
+        mRunningTasks.add(task);
+        task.executeOnExecutor(sFetchExecutor, displayType, page);
+    }
+
+    /**
+     * Adds a loaded page to the grid, after a diff still pending. The movies already shown are
+     * skipped, the scroll listener is told so it doesn't keep waiting for the rest of the page.
+     */
+    private void addPage(final ArrayList<Movie> movies) {
+        mMovieAdapter.runAfterChanges(new Runnable() {
+            @Override
+            public void run() {
+                int dropped = movies.size() - mMovieAdapter.addMovies(movies);
+                if (dropped > 0)
+                    mScrollListener.onItemCountChanged(-dropped);
+            }
+        });
+    }
+
+    /**
+     * Shows the favorites windows read before, without going to the database.
+     */
+    private void showCachedFavorites() {
+        mProgressBar.setVisibility(View.INVISIBLE);
+        showError(false);
+        mMovieAdapter.setMovies(new ArrayList<>(mCachedFavorites));
+        mScrollListener.setLoadedPages(mCachedFavoritesPages, mCachedFavorites.size());
+        if (mCachedFavoritesComplete)
+            mScrollListener.setMaxPage(mCachedFavoritesPages);
+        if (mCachedFavorites.isEmpty())
+            Toast.makeText(this, R.string.no_favorites, Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * Forgets the cached favorites, if they are shown the windows loaded so far are read again
+     * in one go so the grid keeps its position. The loads still running are replaced by it, so
+     * a burst of changes doesn't pile up reads of the same windows.
+     */
+    private void refreshFavorites() {
+        mCachedFavorites = null;
+        if (mCurrentDisplay != FAVORITE_DISPLAY)
+            return;
+        // the refresh reads every window up to the current page, the ones still loading too.
+        cancelRunningTasks();
+        FetchMoviesTask task = new FetchMoviesTask();
+        mRunningTasks.add(task);
+        task.executeOnExecutor(sFetchExecutor, FAVORITE_DISPLAY, 1,
+                mScrollListener.getCurrentPage());
+    }
+
+    /**
+     * Shows the results of the finished loading tasks in the order the tasks were started, a
+     * page which arrived early waits for the pages before it.
+     */
+    private void deliverFinishedTasks() {
+        while (!mRunningTasks.isEmpty() && mRunningTasks.get(0).mFinished)
+            mRunningTasks.remove(0).deliver();
+    }
+
+    /**
+     * Cancels all the loading tasks still running.
+     */
+    private void cancelRunningTasks() {
+        for (FetchMoviesTask task : mRunningTasks)
+            task.cancel(true);
+        mRunningTasks.clear();
+    }
+
+    /**
+     * Reads a single changed favorite, instead of all of them.
+     */
+    private class FavoriteChangeTask extends AsyncTask<Integer, Void, Movie> {
+
+        int mMovieID;
+
+        boolean mFailed;
+
+        @Override
+        protected Movie doInBackground(Integer... params) {
+            mMovieID = params[0];
+            Cursor cursor = getContentResolver().query(
+                    MoviesContract.FavoriteMoviesEntry.buildFavoriteUri(mMovieID),
+                    FAVORITES_PROJECTION, null, null, null);
+            if (cursor == null) {
+                mFailed = true;
+                return null;
+            }
+            try {
+                ArrayList<Movie> favorites = readFavoriteRows(cursor);
+                return favorites.isEmpty() ? null : favorites.get(0);
+            } finally {
+                cursor.close();
+            }
+        }
+
+        @Override
+        protected void onCancelled(Movie favorite) {
+            super.onCancelled(favorite);
+            mFavoriteChangeTasks.remove(this);
+        }
+
+        @Override
+        protected void onPostExecute(Movie favorite) {
+            super.onPostExecute(favorite);
+            mFavoriteChangeTasks.remove(this);
+            if (mFailed)
+                refreshFavorites();
+            else
+                applyFavoriteChange(mMovieID, favorite);
+        }
     }
 
     /**
      * The task responsible for getting the information back from the MovieDB server. Everything
      * is done with the help of the Utilities classes.
      */
-    private class FetchMoviesTask extends AsyncTask<Integer, Void, ArrayList<Movie>> {
+    private class FetchMoviesTask extends AsyncTask<Integer, ArrayList<Movie>, ArrayList<Movie>> {
 
         boolean firstPage;
 
+        /**
+         * Which display this task loads.
+         */
+        int mDisplay;
+
+        /**
+         * Which page this task loads, the last one if it loads more than one.
+         */
+        int mPage = 1;
+
+        /**
+         * How many pages MovieDB has for this display, 0 if unknown.
+         */
+        int mTotalPages;
+
+        /**
+         * What the task loaded, kept until the tasks before it are done.
+         */
+        ArrayList<Movie> mMovies;
+
+        /**
+         * If the loading is done, the task stays in the running tasks until it is delivered.
+         */
+        boolean mFinished;
+
+        /**
+         * The favorites offset shift when the task started, the windows after the first are
+         * read that much further down.
+         */
+        int mOffsetShift;
+
         @Override
         protected void onPreExecute() {
             super.onPreExecute();
             mProgressBar.setVisibility(View.VISIBLE);
+            mOffsetShift = mFavoritesOffsetShift;
         }
 
         @Override
@@ -298,42 +625,43 @@ public class MainActivity extends AppCompatActivity implements GridMovieAdapter.
 
             Bundle savedAdapterState = mAdapterStateBundle;
 
+            mDisplay = params[0];
             if (params[0] == FAVORITE_DISPLAY) {
-                Cursor cursor = getContentResolver().
-                        query(MoviesContract.FavoriteMoviesEntry.CONTENT_URI, null,
-                                null, null, null);
-
-                if (cursor != null) {
-                    int titleIndex = cursor.getColumnIndex(MoviesContract.FavoriteMoviesEntry
-                            .COLUMN_TITLE);
-                    int movieIDIndex = cursor.getColumnIndex(MoviesContract.FavoriteMoviesEntry
-                            .COLUMN_MOVIE_ID);
-                    int posterPathIndex = cursor.getColumnIndex(MoviesContract.FavoriteMoviesEntry
-                            .COLUMN_POSTER_PATH);
-                    movies = new ArrayList<>();
-                    while (cursor.moveToNext()) {
-                        Movie movie = new Movie();
-                        movie.title = cursor.getString(titleIndex);
-                        movie.id = cursor.getInt(movieIDIndex);
-                        movie.poster_path = cursor.getString(posterPathIndex);
-                        movies.add(movie);
-                    }
-                    cursor.close();
-                }
+                int firstWindow = params.length > 1 ? params[1] : 1;
+                // a refresh or a restore reads all the windows the user has seen at once.
+                int windowCount = params.length > 2 ? params[2] : 1;
+                if (savedAdapterState != null && firstWindow == 1)
+                    windowCount = Math.max(windowCount, savedAdapterState.getInt(KEY_PAGE, 1));
+                movies = readFavorites(firstWindow, windowCount);
+                firstPage = firstWindow == 1;
             } else {
                 try {
                     int pageIndex = 1;
                     if (params.length > 1)
                         pageIndex = params[1];
+                    mPage = pageIndex;
                     if (savedAdapterState != null && savedAdapterState.containsKey(KEY_PAGE)) {
                         int savedPage = savedAdapterState.getInt(KEY_PAGE, 1);
-                        movies = new ArrayList<>();
-                        for(int i = 1; i <= savedPage; i++)
-                            //noinspection ConstantConditions
-                            movies.addAll(MovieDBUtil.getAllMovies(MainActivity.this, params[0], i));
+                        // all the pages load at the same time, the first one is shown right away.
+                        MovieDBUtil.MoviesPage restoredPages = MovieDBUtil.getMoviePages(
+                                MainActivity.this, params[0], 1, savedPage,
+                                new MovieDBUtil.PageListener() {
+                                    @Override
+                                    public void onPageLoaded(int page, ArrayList<Movie> pageMovies) {
+                                        if (page == 1)
+                                            publishProgress(pageMovies);
+                                    }
+                                });
+                        movies = restoredPages.movies;
+                        mTotalPages = restoredPages.totalPages;
                         mScrollListener.setCurrentPage(savedPage);
-                    } else
-                        movies = MovieDBUtil.getAllMovies(MainActivity.this, params[0], pageIndex);
+                    } else {
+                        MovieDBUtil.MoviesPage moviesPage = getCatalogPage(params[0], pageIndex);
+                        if (moviesPage != null) {
+                            movies = moviesPage.movies.isEmpty() ? null : moviesPage.movies;
+                            mTotalPages = moviesPage.totalPages;
+                        }
+                    }
                     firstPage = pageIndex == 1;
                 } catch (JsonParseException | IOException e) {
                     movies = null;
@@ -344,27 +672,170 @@ public class MainActivity extends AppCompatActivity implements GridMovieAdapter.
             return movies;
         }
 
+        /**
+         * Reads some windows of the favorites, newest first.
+         *
+         * @param firstWindow the first window, starting at 1.
+         * @param windowCount how many windows to read.
+         * @return the favorites or null if they could not be read.
+         */
+        private ArrayList<Movie> readFavorites(int firstWindow, int windowCount) {
+            // the favorites added or removed since the first window moved the later ones.
+            int offset = (firstWindow - 1) * FAVORITES_WINDOW_SIZE
+                    + (firstWindow > 1 ? mOffsetShift : 0);
+            int limit = windowCount * FAVORITES_WINDOW_SIZE;
+            Cursor cursor = getContentResolver().query(
+                    MoviesContract.FavoriteMoviesEntry.buildWindowUri(offset, limit),
+                    FAVORITES_PROJECTION, null, null,
+                    MoviesContract.FavoriteMoviesEntry.SORT_ORDER_DATE_ADDED);
+            if (cursor == null)
+                return null;
+
+            ArrayList<Movie> movies;
+            try {
+                movies = readFavoriteRows(cursor);
+            } finally {
+                cursor.close();
+            }
+
+            mPage = firstWindow + windowCount - 1;
+            // a window which is not full is the last one.
+            if (movies.size() < limit) {
+                mTotalPages = Math.max(1, (offset + movies.size() + FAVORITES_WINDOW_SIZE - 1)
+                        / FAVORITES_WINDOW_SIZE);
+                mPage = Math.max(firstWindow, Math.min(mPage, mTotalPages));
+            }
+            return movies;
+        }
+
+        /**
+         * Gets a page of the catalog, first from the local cache and then from MovieDB. The
+         * cached first page is shown right away, if it is recent enough MovieDB is not asked
+         * at all. If MovieDB can't be reached the cached page is used.
+         *
+         * @param display   the display the page belongs to.
+         * @param pageIndex the page.
+         * @return the page, or null if there is neither network nor a cached page.
+         */
+        private MovieDBUtil.MoviesPage getCatalogPage(int display, int pageIndex) {
+            CatalogCache.CachedPage cachedPage =
+                    CatalogCache.getPage(getContentResolver(), display, pageIndex);
+            if (cachedPage != null) {
+                if (pageIndex == 1)
+                    publishProgress(cachedPage.moviesPage.movies);
+                if (cachedPage.isFresh())
+                    return cachedPage.moviesPage;
+            }
+
+            try {
+                MovieDBUtil.MoviesPage moviesPage =
+                        MovieDBUtil.getMoviesPage(MainActivity.this, display, pageIndex);
+                if (!moviesPage.movies.isEmpty())
+                    CatalogCache.putPage(getContentResolver(), display, moviesPage);
+                return moviesPage;
+            } catch (JsonParseException | IOException e) {
+                e.printStackTrace();
+                return cachedPage != null ? cachedPage.moviesPage : null;
+            }
+        }
+
+        /**
+         * Shows the first page while the others are still being restored, or the cached first
+         * page while it is refreshed.
+         */
+        @SafeVarargs
+        @Override
+        protected final void onProgressUpdate(ArrayList<Movie>... firstPageMovies) {
+            super.onProgressUpdate(firstPageMovies);
+            showError(false);
+            mMovieAdapter.setMovies(firstPageMovies[0]);
+        }
+
+        @Override
+        protected void onCancelled(ArrayList<Movie> movies) {
+            super.onCancelled(movies);
+            mRunningTasks.remove(this);
+            deliverFinishedTasks();
+        }
+
         @Override
         protected void onPostExecute(ArrayList<Movie> movies) {
             super.onPostExecute(movies);
-            mProgressBar.setVisibility(View.INVISIBLE);
+            mMovies = movies;
+            mFinished = true;
+            deliverFinishedTasks();
+        }
 
-            if (mCurrentDisplay == FAVORITE_DISPLAY && (movies == null || movies.isEmpty())) {
+        /**
+         * Shows what this task loaded, only called once all the tasks started before it are done.
+         */
+        private void deliver() {
+            ArrayList<Movie> movies = mMovies;
+            // a favorite changed while the window was read, it may miss or repeat one.
+            if (mDisplay == FAVORITE_DISPLAY && !firstPage
+                    && mOffsetShift != mFavoritesOffsetShift) {
+                refreshFavorites();
+                return;
+            }
+            if (mRunningTasks.isEmpty())
+                mProgressBar.setVisibility(View.INVISIBLE);
+
+            // the scrolling stops at the last page MovieDB has.
+            if (mTotalPages > 0)
+                mScrollListener.setMaxPage(mTotalPages);
+
+            // a page after this one can't be shown before this one is there.
+            if (movies == null && mCurrentDisplay != FAVORITE_DISPLAY && mPage > 1) {
+                cancelRunningTasks();
+                mProgressBar.setVisibility(View.INVISIBLE);
+                mScrollListener.onLoadFailed(mPage);
+            }
+
+            if (mCurrentDisplay == FAVORITE_DISPLAY && firstPage
+                    && (movies == null || movies.isEmpty())) {
                 Toast.makeText(MainActivity.this,
                         R.string.no_favorites, Toast.LENGTH_SHORT).show();
             } else showError(movies == null);
 
-            if (firstPage || mCurrentDisplay == FAVORITE_DISPLAY)
+            if (firstPage)
                 mMovieAdapter.setMovies(movies);
             else if (movies != null)
-                mMovieAdapter.addMovies(movies);
+                addPage(movies);
+
+            if (mDisplay == FAVORITE_DISPLAY && movies != null) {
+                // a refresh brings more than one window at once.
+                if (firstPage)
+                    mScrollListener.setLoadedPages(mPage, movies.size());
+                cacheFavorites(movies);
+            }
 
-            // restoring the state previously assigned.
+            // restoring the state previously assigned, once the restored movies are shown.
             if (mAdapterStateBundle != null) {
-                mRecyclerView.scrollToPosition(mAdapterStateBundle.getInt(KEY_POSITION, 0));
+                final int position = mAdapterStateBundle.getInt(KEY_POSITION, 0);
                 mAdapterStateBundle = null;
+                mMovieAdapter.runAfterChanges(new Runnable() {
+                    @Override
+                    public void run() {
+                        mRecyclerView.scrollToPosition(position);
+                    }
+                });
             }
         }
+
+        /**
+         * Keeps the favorites windows for the next time the favorites are shown.
+         */
+        private void cacheFavorites(ArrayList<Movie> movies) {
+            if (firstPage) {
+                mCachedFavorites = new ArrayList<>(movies);
+                mFavoritesOffsetShift = 0;
+            } else if (mCachedFavorites != null)
+                mCachedFavorites.addAll(movies);
+            else
+                return;
+            mCachedFavoritesPages = mPage;
+            mCachedFavoritesComplete = mTotalPages > 0;
+        }
     }
 
 }
@@ -1,18 +1,16 @@
 package de.alfingo.whattowatch;
 
-import android.net.Uri;
-
-import java.io.Serializable;
 import java.util.Date;
 import java.util.List;
 
 /**
- * The Movie Object, as received from MovieDB, created automatically with Gson.
+ * The Movie Object, as received from MovieDB, decoded by the hand written Gson adapters in the
+ * utilities package. Where movies are stored they use the binary codec from there too.
  *
  * @author Rafael
  * @since 23.01.2017
  */
-public class Movie implements Serializable {
+public class Movie {
 
     // everything here must be named exactly as in the DB.
     public String poster_path;
@@ -36,7 +34,7 @@ public class Movie implements Serializable {
     /**
      * A review POJO.
      */
-    public class Review {
+    public static class Review {
         public String author;
         public String content;
     }
@@ -44,7 +42,7 @@ public class Movie implements Serializable {
     /**
      * A POJO for storing the video informations.
      */
-    public class MovieVideo {
+    public static class MovieVideo {
         public static final String YOUTUBE = "YouTube";
         public String site;
         public String name;
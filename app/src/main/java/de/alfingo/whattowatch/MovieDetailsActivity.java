@@ -1,7 +1,6 @@
 package de.alfingo.whattowatch;
 
 import android.content.Intent;
-import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
@@ -31,7 +30,8 @@ import java.util.Locale;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
-import de.alfingo.whattowatch.data.MoviesContract;
+import de.alfingo.whattowatch.data.FavoriteIds;
+import de.alfingo.whattowatch.data.FavoritesWriter;
 import de.alfingo.whattowatch.utilities.MovieDBUtil;
 
 /**
@@ -80,15 +80,31 @@ public class MovieDetailsActivity extends AppCompatActivity
 
 
     /**
-     * Just a hard reference to our target, Picasso only keeps soft references.
+     * The backdrop is first decoded in a quarter of the toolbar size, it is there long before
+     * the sharp one.
      */
-    Target mBackgroundTarget;
+    private static final int BACKDROP_PREVIEW_SCALE = 4;
+
+    /**
+     * Just hard references to our targets, Picasso only keeps soft references.
+     */
+    Target mBackgroundTarget, mBackgroundPreviewTarget;
+
+    /**
+     * If the sharp backdrop is shown, the preview must not replace it anymore.
+     */
+    boolean mBackgroundLoaded;
 
     /**
      * If the movie is on the favorite list.
      */
     boolean mFavorite;
 
+    /**
+     * The movie loaded for this page, null until the loader finished.
+     */
+    Movie mMovie;
+
     /**
      * As the name suggests, the adapter for displaying reviews.
      */
@@ -116,15 +132,15 @@ public class MovieDetailsActivity extends AppCompatActivity
             @Override
             public void onClick(View view) {
                 if (movieID != null && !movieID.isEmpty()) {
-                    Uri movieWithID = MoviesContract.FavoriteMoviesEntry.CONTENT_URI
-                            .buildUpon()
-                            .appendPath(movieID)
-                            .build();
-                    if (mFavorite)
-                        getContentResolver().delete(movieWithID, null, null);
-                    else
-                        getContentResolver().insert(movieWithID, null);
+                    // the state changes right away, the database is written in the background.
+                    Movie movie = mMovie;
+                    if (movie == null) {
+                        movie = new Movie();
+                        movie.id = Integer.parseInt(movieID);
+                    }
                     mFavorite = !mFavorite;
+                    movie.favorite = mFavorite;
+                    FavoritesWriter.setFavorite(MovieDetailsActivity.this, movie, mFavorite);
                     // if it is a favorite fill the heart with joy and love.
                     mFab.setImageResource(mFavorite ? R.drawable.ic_favorite_white_24dp :
                             R.drawable.ic_favorite_border_white_24dp);
@@ -172,6 +188,8 @@ public class MovieDetailsActivity extends AppCompatActivity
                 Movie returnMovie = null;
                 if (movieID != null) {
                     try {
+                        // from the details cache if the movie was seen before, otherwise one
+                        // round trip instead of three, this is the longest wait on the page.
                         returnMovie = MovieDBUtil.getMovieDetails(movieID);
                     } catch (IOException e) {
                         // TODO: 26.03.2017 Show the user some feedback on what went wrong.
@@ -179,15 +197,15 @@ public class MovieDetailsActivity extends AppCompatActivity
                     }
                 }
 
-                // getting if the movie already is a favorite or not.
-                Uri movieWithID = MoviesContract.FavoriteMoviesEntry.CONTENT_URI.buildUpon()
-                        .appendPath(movieID)
-                        .build();
-                Cursor cursor = getContentResolver().query(movieWithID, null, null, null, null);
-                if (cursor != null) {
-                    if (returnMovie != null && cursor.getCount() > 0)
-                        returnMovie.favorite = true;
-                    cursor.close();
+                // a memory lookup, it only waits for the IDs right after the app started.
+                if (returnMovie != null) {
+                    try {
+                        FavoriteIds.awaitLoaded();
+                        // always set, the movie could be a cached one from an earlier visit.
+                        returnMovie.favorite = FavoriteIds.contains(returnMovie.id);
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
                 }
 
                 return returnMovie;
@@ -204,6 +222,7 @@ public class MovieDetailsActivity extends AppCompatActivity
     @Override
     public void onLoadFinished(Loader<Movie> loader, Movie data) {
         if (data != null) { // Otaris: 27.03.2017 Better handling of no internet connection on the details screen.
+            mMovie = data;
             setTitle(data.title);
             mToolbarLayout.setTitle(data.title);
 
@@ -225,27 +244,9 @@ public class MovieDetailsActivity extends AppCompatActivity
             mReleaseDateTextView.setText(formattedDate);
 
 
-            // loading background image
-            mBackgroundTarget = new Target() {
-                @Override
-                public void onBitmapLoaded(Bitmap bitmap, Picasso.LoadedFrom from) {
-                    mToolbarLayout.setBackground(new BitmapDrawable(getResources(), bitmap));
-                }
-
-                @Override
-                public void onBitmapFailed(Drawable errorDrawable) {
-                    Log.d(TAG, "Bitmap load failed.");
-                }
-
-                @Override
-                public void onPrepareLoad(Drawable placeHolderDrawable) {
-                    Log.d(TAG, "Prepare load of Backdrop.");
-                }
-            };
-            Picasso.with(this)
-                    .load(MovieDBUtil.getPictureUri(data.backdrop_path,
-                            MovieDBUtil.IMAGE_SIZE_ORIGINAL_PATH))
-                    .into(mBackgroundTarget);
+            // loading background image, the preview first and then the sharp one.
+            if (data.backdrop_path != null)
+                loadBackdrop(data.backdrop_path);
 
             // reviews and videos are set now!
             mReviewsAdapter.swapData(data.reviews);
@@ -257,6 +258,71 @@ public class MovieDetailsActivity extends AppCompatActivity
         }
     }
 
+    /**
+     * Loads the backdrop in two steps, a tiny rendition which is shown right away and then one
+     * sized to the toolbar. Both are decoded in the size they are shown in, never in the size
+     * of the source.
+     */
+    private void loadBackdrop(String backdropPath) {
+        int width = mToolbarLayout.getWidth(), height = mToolbarLayout.getHeight();
+        if (width == 0 || height == 0) {
+            // not laid out yet, the toolbar is as wide as the screen and as high as the app bar.
+            width = getResources().getDisplayMetrics().widthPixels;
+            height = getResources().getDimensionPixelSize(R.dimen.app_bar_height);
+        }
+        int previewWidth = width / BACKDROP_PREVIEW_SCALE,
+                previewHeight = height / BACKDROP_PREVIEW_SCALE;
+
+        mBackgroundLoaded = false;
+        mBackgroundPreviewTarget = new BackgroundTarget(true);
+        mBackgroundTarget = new BackgroundTarget(false);
+        Picasso picasso = Picasso.with(this);
+        picasso.load(MovieDBUtil.getPictureUri(backdropPath,
+                MovieDBUtil.getBackdropSize(previewWidth)))
+                .resize(previewWidth, previewHeight)
+                .centerCrop()
+                .priority(Picasso.Priority.HIGH)
+                .into(mBackgroundPreviewTarget);
+        picasso.load(MovieDBUtil.getPictureUri(backdropPath,
+                MovieDBUtil.getBackdropSize(width)))
+                .resize(width, height)
+                .centerCrop()
+                .onlyScaleDown()
+                .into(mBackgroundTarget);
+    }
+
+    /**
+     * Sets a backdrop as the toolbar background.
+     */
+    private class BackgroundTarget implements Target {
+
+        private final boolean mPreview;
+
+        BackgroundTarget(boolean preview) {
+            mPreview = preview;
+        }
+
+        @Override
+        public void onBitmapLoaded(Bitmap bitmap, Picasso.LoadedFrom from) {
+            // the preview came too late, the sharp one is already there.
+            if (mPreview && mBackgroundLoaded)
+                return;
+            if (!mPreview)
+                mBackgroundLoaded = true;
+            mToolbarLayout.setBackground(new BitmapDrawable(getResources(), bitmap));
+        }
+
+        @Override
+        public void onBitmapFailed(Drawable errorDrawable) {
+            Log.d(TAG, (mPreview ? "Preview bitmap" : "Bitmap") + " load failed.");
+        }
+
+        @Override
+        public void onPrepareLoad(Drawable placeHolderDrawable) {
+            Log.d(TAG, "Prepare load of Backdrop" + (mPreview ? " preview." : "."));
+        }
+    }
+
     @Override
     public void onLoaderReset(Loader<Movie> loader) {
 
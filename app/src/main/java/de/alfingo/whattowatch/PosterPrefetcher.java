@@ -0,0 +1,177 @@
+package de.alfingo.whattowatch;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.Target;
+
+import java.util.ArrayList;
+
+/**
+ * Loads the posters of the next rows into Picasso's cache before they are scrolled into view, in
+ * the direction the user scrolls. Runs whenever the grid scrolls or new movies arrive, with a
+ * low priority so the visible posters always come first.
+ *
+ * @author Rafael
+ * @since 18.10.2026
+ */
+class PosterPrefetcher extends RecyclerView.OnScrollListener {
+
+    /**
+     * The prefetches still loading. Picasso only keeps weak references to its targets, and
+     * only a request with a target can be cancelled, fetch() ones can't.
+     */
+    private final ArrayList<PrefetchTarget> mTargets = new ArrayList<>();
+
+    private final Picasso mPicasso;
+
+    private final RecyclerView mRecyclerView;
+
+    private final GridLayoutManager mLayoutManager;
+
+    private final GridMovieAdapter mAdapter;
+
+    /**
+     * How many rows beyond the visible ones are prefetched.
+     */
+    private final int mRows;
+
+    /**
+     * True while scrolling down, the way the grid usually goes.
+     */
+    private boolean mScrollingDown = true;
+
+    /**
+     * The positions prefetched last time, they are not requested again. The end is exclusive.
+     */
+    private int mPrefetchedFrom, mPrefetchedTo;
+
+    /**
+     * Runs after the next layout, only then the new movies have their positions.
+     */
+    private final Runnable mPrefetchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            prefetch();
+        }
+    };
+
+    PosterPrefetcher(Context context, RecyclerView recyclerView, GridMovieAdapter adapter,
+                     int rows) {
+        mPicasso = Picasso.with(context);
+        mRecyclerView = recyclerView;
+        mLayoutManager = (GridLayoutManager) recyclerView.getLayoutManager();
+        mAdapter = adapter;
+        mRows = rows;
+
+        mAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                onMoviesChanged();
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                onMoviesChanged();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                onMoviesChanged();
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                onMoviesChanged();
+            }
+        });
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        super.onScrolled(recyclerView, dx, dy);
+        if (dy != 0)
+            mScrollingDown = dy > 0;
+        prefetch();
+    }
+
+    /**
+     * Stops all the prefetches still waiting, for when other movies are shown.
+     */
+    void cancel() {
+        mRecyclerView.removeCallbacks(mPrefetchRunnable);
+        for (PrefetchTarget target : mTargets)
+            mPicasso.cancelRequest(target);
+        mTargets.clear();
+        mScrollingDown = true;
+        mPrefetchedFrom = mPrefetchedTo = 0;
+    }
+
+    /**
+     * The positions may have moved, so everything next to the visible rows is requested again.
+     * Picasso doesn't download what it already has.
+     */
+    private void onMoviesChanged() {
+        mPrefetchedFrom = mPrefetchedTo = 0;
+        mRecyclerView.removeCallbacks(mPrefetchRunnable);
+        mRecyclerView.post(mPrefetchRunnable);
+    }
+
+    private void prefetch() {
+        int itemCount = mAdapter.getItemCount();
+        if (itemCount == 0)
+            return;
+        int items = mRows * mLayoutManager.getSpanCount();
+        int from, to;
+        if (mScrollingDown) {
+            from = mLayoutManager.findLastVisibleItemPosition() + 1;
+            to = Math.min(from + items, itemCount);
+        } else {
+            to = mLayoutManager.findFirstVisibleItemPosition();
+            from = Math.max(to - items, 0);
+        }
+        if (from < 0 || from >= to)
+            return;
+
+        for (int position = from; position < to; position++) {
+            if (position >= mPrefetchedFrom && position < mPrefetchedTo)
+                continue;
+            Uri posterUri = mAdapter.getPosterUri(position);
+            if (posterUri == null)
+                continue;
+            PrefetchTarget target = new PrefetchTarget();
+            mTargets.add(target);
+            // a target loads with the normal priority, unlike fetch().
+            mPicasso.load(posterUri)
+                    .priority(Picasso.Priority.LOW)
+                    .into(target);
+        }
+        mPrefetchedFrom = from;
+        mPrefetchedTo = to;
+    }
+
+    /**
+     * Only keeps the poster in Picasso's caches, it lets go of itself once the poster is there.
+     */
+    private class PrefetchTarget implements Target {
+
+        @Override
+        public void onBitmapLoaded(Bitmap bitmap, Picasso.LoadedFrom from) {
+            mTargets.remove(this);
+        }
+
+        @Override
+        public void onBitmapFailed(Drawable errorDrawable) {
+            mTargets.remove(this);
+        }
+
+        @Override
+        public void onPrepareLoad(Drawable placeHolderDrawable) {
+        }
+    }
+}
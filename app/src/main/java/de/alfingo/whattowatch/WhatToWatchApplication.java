@@ -0,0 +1,29 @@
+package de.alfingo.whattowatch;
+
+import android.app.Application;
+
+import de.alfingo.whattowatch.data.FavoriteIds;
+import de.alfingo.whattowatch.utilities.ImagePipeline;
+import de.alfingo.whattowatch.utilities.MovieDBUtil;
+
+/**
+ * The application, sets up everything the whole process shares before any activity starts.
+ *
+ * @author Rafael
+ * @since 18.10.2026
+ */
+public class WhatToWatchApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // repeated requests are answered from the disk instead of the network.
+        MovieDBUtil.installHttpCache(this);
+        // movies seen before open without asking MovieDB at all.
+        MovieDBUtil.installDetailsCache(this);
+        // before the first image, every Picasso.with gets the configured one.
+        ImagePipeline.install(this);
+        // the favorite checks of the grid and the details are memory lookups from now on.
+        FavoriteIds.init(this);
+    }
+}
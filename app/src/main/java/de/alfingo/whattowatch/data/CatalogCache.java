@@ -0,0 +1,186 @@
+package de.alfingo.whattowatch.data;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.RemoteException;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+import de.alfingo.whattowatch.Movie;
+import de.alfingo.whattowatch.data.MoviesContract.CatalogMoviesEntry;
+import de.alfingo.whattowatch.utilities.MovieDBUtil;
+
+/**
+ * Reads and writes the pages of the MovieDB lists into the catalog table, so the grid can be
+ * shown right away from the disk and refreshed in the background.
+ *
+ * @author Rafael
+ * @since 18.10.2026
+ */
+public final class CatalogCache {
+
+    /**
+     * How long a cached page is good enough to be shown without asking MovieDB again.
+     */
+    public static final long FRESH_MILLIS = 10 * 60 * 1000;
+
+    /**
+     * Pages older than this are not worth showing even without network, they are deleted when
+     * the next page is cached.
+     */
+    public static final long MAX_AGE_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+
+    private static final String TAG = CatalogCache.class.getSimpleName();
+
+    private static final String EXPIRED_SELECTION = CatalogMoviesEntry.COLUMN_FETCHED_AT + "<?";
+
+    private static final String PAGE_SELECTION = CatalogMoviesEntry.COLUMN_PAGE + "=?";
+
+    private CatalogCache() {
+    }
+
+    /**
+     * Reads a cached page.
+     *
+     * @param resolver for querying our provider.
+     * @param display  which display the page belongs to.
+     * @param page     the page number.
+     * @return the page or null if it was never cached.
+     */
+    @Nullable
+    public static CachedPage getPage(@NonNull ContentResolver resolver, int display, int page) {
+        Cursor cursor = resolver.query(CatalogMoviesEntry.buildDisplayUri(display), null,
+                PAGE_SELECTION, new String[]{String.valueOf(page)}, null);
+        if (cursor == null)
+            return null;
+
+        try {
+            if (!cursor.moveToFirst())
+                return null;
+
+            int totalPages = cursor.getInt(
+                    cursor.getColumnIndex(CatalogMoviesEntry.COLUMN_TOTAL_PAGES));
+            long fetchedAt = cursor.getLong(
+                    cursor.getColumnIndex(CatalogMoviesEntry.COLUMN_FETCHED_AT));
+            ArrayList<Movie> movies = new ArrayList<>(cursor.getCount());
+            do {
+                movies.add(readMovie(cursor));
+            } while (cursor.moveToNext());
+
+            return new CachedPage(new MovieDBUtil.MoviesPage(page, totalPages, movies), fetchedAt);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Replaces a cached page with a freshly fetched one, the other pages of the display stay
+     * as they are even if the same movies are in them. Pages of any display which expired are
+     * deleted in the same go.
+     *
+     * @param resolver   for writing into our provider.
+     * @param display    which display the page belongs to.
+     * @param moviesPage the page as fetched from MovieDB.
+     */
+    public static void putPage(@NonNull ContentResolver resolver, int display,
+                               @NonNull MovieDBUtil.MoviesPage moviesPage) {
+        Uri displayUri = CatalogMoviesEntry.buildDisplayUri(display);
+        long fetchedAt = System.currentTimeMillis();
+        ArrayList<ContentProviderOperation> operations =
+                new ArrayList<>(moviesPage.movies.size() + 2);
+        operations.add(ContentProviderOperation.newDelete(CatalogMoviesEntry.CONTENT_URI)
+                .withSelection(EXPIRED_SELECTION,
+                        new String[]{String.valueOf(fetchedAt - MAX_AGE_MILLIS)})
+                .build());
+        operations.add(ContentProviderOperation.newDelete(displayUri)
+                .withSelection(PAGE_SELECTION, new String[]{String.valueOf(moviesPage.page)})
+                .build());
+
+        for (int i = 0; i < moviesPage.movies.size(); i++) {
+            ContentValues values = toContentValues(moviesPage.movies.get(i));
+            values.put(CatalogMoviesEntry.COLUMN_PAGE, moviesPage.page);
+            values.put(CatalogMoviesEntry.COLUMN_POSITION, i);
+            values.put(CatalogMoviesEntry.COLUMN_TOTAL_PAGES, moviesPage.totalPages);
+            values.put(CatalogMoviesEntry.COLUMN_FETCHED_AT, fetchedAt);
+            operations.add(ContentProviderOperation.newInsert(displayUri)
+                    .withValues(values)
+                    .build());
+        }
+
+        // the old page is replaced in one transaction, with one notification.
+        try {
+            resolver.applyBatch(MoviesContract.AUTHORITY, operations);
+        } catch (RemoteException | OperationApplicationException e) {
+            Log.w(TAG, "Page " + moviesPage.page + " could not be cached.", e);
+        }
+    }
+
+    /**
+     * The values stored for every movie.
+     */
+    private static ContentValues toContentValues(Movie movie) {
+        ContentValues values = new ContentValues();
+        values.put(CatalogMoviesEntry.COLUMN_MOVIE_ID, movie.id);
+        values.put(CatalogMoviesEntry.COLUMN_TITLE, movie.title);
+        values.put(CatalogMoviesEntry.COLUMN_POSTER_PATH, movie.poster_path);
+        values.put(CatalogMoviesEntry.COLUMN_BACKDROP_PATH, movie.backdrop_path);
+        values.put(CatalogMoviesEntry.COLUMN_OVERVIEW, movie.overview);
+        values.put(CatalogMoviesEntry.COLUMN_VOTE_AVERAGE, movie.vote_average);
+        values.put(CatalogMoviesEntry.COLUMN_VOTE_COUNT, movie.vote_count);
+        if (movie.release_date != null)
+            values.put(CatalogMoviesEntry.COLUMN_RELEASE_DATE, movie.release_date.getTime());
+        return values;
+    }
+
+    /**
+     * Reads the movie in the current row.
+     */
+    private static Movie readMovie(Cursor cursor) {
+        Movie movie = new Movie();
+        movie.id = cursor.getInt(cursor.getColumnIndex(CatalogMoviesEntry.COLUMN_MOVIE_ID));
+        movie.title = cursor.getString(cursor.getColumnIndex(CatalogMoviesEntry.COLUMN_TITLE));
+        movie.poster_path = cursor.getString(
+                cursor.getColumnIndex(CatalogMoviesEntry.COLUMN_POSTER_PATH));
+        movie.backdrop_path = cursor.getString(
+                cursor.getColumnIndex(CatalogMoviesEntry.COLUMN_BACKDROP_PATH));
+        movie.overview = cursor.getString(
+                cursor.getColumnIndex(CatalogMoviesEntry.COLUMN_OVERVIEW));
+        movie.vote_average = cursor.getFloat(
+                cursor.getColumnIndex(CatalogMoviesEntry.COLUMN_VOTE_AVERAGE));
+        movie.vote_count = cursor.getInt(
+                cursor.getColumnIndex(CatalogMoviesEntry.COLUMN_VOTE_COUNT));
+        int releaseDateIndex = cursor.getColumnIndex(CatalogMoviesEntry.COLUMN_RELEASE_DATE);
+        if (!cursor.isNull(releaseDateIndex))
+            movie.release_date = new Date(cursor.getLong(releaseDateIndex));
+        return movie;
+    }
+
+    /**
+     * A page read from the catalog, and when it was fetched.
+     */
+    public static class CachedPage {
+        public final MovieDBUtil.MoviesPage moviesPage;
+        public final long fetchedAt;
+
+        CachedPage(MovieDBUtil.MoviesPage moviesPage, long fetchedAt) {
+            this.moviesPage = moviesPage;
+            this.fetchedAt = fetchedAt;
+        }
+
+        /**
+         * @return if the page is recent enough to skip the refresh.
+         */
+        public boolean isFresh() {
+            long age = System.currentTimeMillis() - fetchedAt;
+            return age >= 0 && age < FRESH_MILLIS;
+        }
+    }
+}
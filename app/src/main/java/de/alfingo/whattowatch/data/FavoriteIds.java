@@ -0,0 +1,185 @@
+package de.alfingo.whattowatch.data;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import de.alfingo.whattowatch.utilities.IntSet;
+
+/**
+ * The IDs of all the favorites, kept in memory so asking if a movie is a favorite doesn't need
+ * the database. They are read once when the app starts and kept current through the change
+ * notifications of the favorites.
+ *
+ * @author Rafael
+ * @since 18.10.2026
+ */
+public final class FavoriteIds {
+
+    /**
+     * Told when the favorites change, always on the main thread.
+     */
+    public interface FavoriteIdsListener {
+        /**
+         * @param movieID the movie which became a favorite or stopped being one, or
+         *                {@link #ALL_MOVIES} if any of them could have changed.
+         */
+        void onFavoriteChanged(int movieID);
+    }
+
+    public static final int ALL_MOVIES = MoviesContract.FavoriteMoviesEntry.ALL_MOVIES;
+
+    /**
+     * Guarded by the class lock.
+     */
+    private static IntSet sIds = new IntSet();
+
+    private static final CountDownLatch sLoaded = new CountDownLatch(1);
+
+    /**
+     * Only touched on the main thread.
+     */
+    private static final List<FavoriteIdsListener> sListeners = new ArrayList<>();
+
+    private static ContentResolver sContentResolver;
+
+    private static Handler sMainHandler;
+
+    private FavoriteIds() {
+    }
+
+    /**
+     * Reads the IDs in the background and starts following the changes, only the first call
+     * does anything.
+     *
+     * @param context any context, only the application context is kept.
+     */
+    public static synchronized void init(@NonNull Context context) {
+        if (sContentResolver != null)
+            return;
+        sContentResolver = context.getApplicationContext().getContentResolver();
+        sMainHandler = new Handler(Looper.getMainLooper());
+
+        HandlerThread thread =
+                new HandlerThread("favorite-ids", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        Handler worker = new Handler(thread.getLooper());
+
+        sContentResolver.registerContentObserver(MoviesContract.FavoriteMoviesEntry.CONTENT_URI,
+                true, new ContentObserver(worker) {
+                    @Override
+                    public void onChange(boolean selfChange) {
+                        onChange(selfChange, null);
+                    }
+
+                    @Override
+                    public void onChange(boolean selfChange, Uri uri) {
+                        update(uri);
+                    }
+                });
+        worker.post(new Runnable() {
+            @Override
+            public void run() {
+                update(null);
+                sLoaded.countDown();
+            }
+        });
+    }
+
+    /**
+     * If the movie is a favorite, a memory lookup. Until the IDs are read for the first time
+     * every movie is no favorite, use {@link #awaitLoaded()} off the main thread to be sure.
+     */
+    public static synchronized boolean contains(int movieID) {
+        return sIds.contains(movieID);
+    }
+
+    /**
+     * Waits until the IDs were read for the first time, never call it on the main thread.
+     */
+    public static void awaitLoaded() throws InterruptedException {
+        sLoaded.await();
+    }
+
+    public static void addListener(@NonNull FavoriteIdsListener listener) {
+        sListeners.add(listener);
+    }
+
+    public static void removeListener(@NonNull FavoriteIdsListener listener) {
+        sListeners.remove(listener);
+    }
+
+    /**
+     * Reads the changed favorite again, or all of them if the uri doesn't say which one
+     * changed. Runs on the worker thread.
+     */
+    private static void update(Uri uri) {
+        int movieID = MoviesContract.FavoriteMoviesEntry.getMovieID(uri);
+        if (movieID == ALL_MOVIES) {
+            IntSet ids = readAllIds();
+            if (ids == null)
+                return;
+            synchronized (FavoriteIds.class) {
+                sIds = ids;
+            }
+            notifyListeners(ALL_MOVIES);
+            return;
+        }
+
+        Cursor cursor = sContentResolver.query(uri,
+                new String[]{MoviesContract.FavoriteMoviesEntry._COUNT}, null, null, null);
+        if (cursor == null)
+            return;
+        boolean changed;
+        try {
+            boolean favorite = cursor.moveToFirst() && cursor.getInt(0) > 0;
+            synchronized (FavoriteIds.class) {
+                changed = favorite ? sIds.add(movieID) : sIds.remove(movieID);
+            }
+        } finally {
+            cursor.close();
+        }
+        if (changed)
+            notifyListeners(movieID);
+    }
+
+    /**
+     * @return the IDs of all the favorites, null if they could not be read.
+     */
+    private static IntSet readAllIds() {
+        Cursor cursor = sContentResolver.query(MoviesContract.FavoriteMoviesEntry.CONTENT_URI,
+                new String[]{MoviesContract.FavoriteMoviesEntry.COLUMN_MOVIE_ID},
+                null, null, null);
+        if (cursor == null)
+            return null;
+        try {
+            IntSet ids = new IntSet(cursor.getCount());
+            while (cursor.moveToNext())
+                ids.add(cursor.getInt(0));
+            return ids;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void notifyListeners(final int movieID) {
+        sMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (FavoriteIdsListener listener : new ArrayList<>(sListeners))
+                    listener.onFavoriteChanged(movieID);
+            }
+        });
+    }
+}
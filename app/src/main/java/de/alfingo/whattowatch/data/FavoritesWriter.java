@@ -0,0 +1,188 @@
+package de.alfingo.whattowatch.data;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.util.Log;
+import android.util.SparseArray;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.alfingo.whattowatch.Movie;
+import de.alfingo.whattowatch.utilities.MovieDBUtil;
+
+/**
+ * Writes the favorites in the background, one write after the other. The screen changes its
+ * state right away and hands the write to this queue. A movie the screen knows too little about
+ * is looked up here, in the catalog or else on MovieDB, never inside the provider. If a movie is
+ * toggled again before its write started, only the last state is written.
+ *
+ * @author Rafael
+ * @since 18.10.2026
+ */
+public final class FavoritesWriter {
+
+    private static final String TAG = FavoritesWriter.class.getSimpleName();
+
+    /**
+     * What is read from the catalog for a favorite the screen didn't know, in the order
+     * {@link PendingWrite#findMovie(int)} reads it.
+     */
+    private static final String[] CATALOG_PROJECTION = {
+            MoviesContract.CatalogMoviesEntry.COLUMN_TITLE,
+            MoviesContract.CatalogMoviesEntry.COLUMN_POSTER_PATH,
+            MoviesContract.CatalogMoviesEntry.COLUMN_VOTE_AVERAGE,
+            MoviesContract.CatalogMoviesEntry.COLUMN_RELEASE_DATE,
+            MoviesContract.CatalogMoviesEntry.COLUMN_OVERVIEW
+    };
+
+    private static final String CATALOG_SELECTION =
+            MoviesContract.CatalogMoviesEntry.COLUMN_MOVIE_ID + "=?";
+
+    /**
+     * One thread, so the writes for the same movie are never reordered.
+     */
+    private static final ExecutorService sWriteExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * The writes not started yet, by movie ID.
+     */
+    private static final SparseArray<PendingWrite> sPendingWrites = new SparseArray<>();
+
+    private FavoritesWriter() {
+    }
+
+    /**
+     * Queues a movie to be added or removed from the favorites.
+     *
+     * @param context  any context, only the application context is kept.
+     * @param movie    the movie, the title and poster are stored with it if they are known.
+     * @param favorite if it should be a favorite or not.
+     */
+    public static void setFavorite(@NonNull Context context, @NonNull Movie movie,
+                                   boolean favorite) {
+        synchronized (sPendingWrites) {
+            PendingWrite pendingWrite = sPendingWrites.get(movie.id);
+            if (pendingWrite != null) {
+                // not started yet, so it just writes the newest state.
+                pendingWrite.movie = movie;
+                pendingWrite.favorite = favorite;
+                return;
+            }
+
+            pendingWrite = new PendingWrite(context.getApplicationContext().getContentResolver(),
+                    movie, favorite);
+            sPendingWrites.put(movie.id, pendingWrite);
+            sWriteExecutor.execute(pendingWrite);
+        }
+    }
+
+    /**
+     * The values stored for a favorite.
+     *
+     * @return the values, null if the title or the poster is missing.
+     */
+    private static ContentValues toContentValues(Movie movie) {
+        if (movie.title == null || movie.poster_path == null)
+            return null;
+        ContentValues values = new ContentValues();
+        values.put(MoviesContract.FavoriteMoviesEntry.COLUMN_MOVIE_ID, movie.id);
+        values.put(MoviesContract.FavoriteMoviesEntry.COLUMN_TITLE, movie.title);
+        values.put(MoviesContract.FavoriteMoviesEntry.COLUMN_POSTER_PATH, movie.poster_path);
+        values.put(MoviesContract.FavoriteMoviesEntry.COLUMN_VOTE_AVERAGE, movie.vote_average);
+        if (movie.release_date != null)
+            values.put(MoviesContract.FavoriteMoviesEntry.COLUMN_RELEASE_DATE,
+                    movie.release_date.getTime());
+        values.put(MoviesContract.FavoriteMoviesEntry.COLUMN_OVERVIEW, movie.overview);
+        values.put(MoviesContract.FavoriteMoviesEntry.COLUMN_DATE_ADDED,
+                System.currentTimeMillis());
+        return values;
+    }
+
+    /**
+     * A write waiting in the queue.
+     */
+    private static class PendingWrite implements Runnable {
+
+        private final ContentResolver mContentResolver;
+        Movie movie;
+        boolean favorite;
+
+        PendingWrite(ContentResolver contentResolver, Movie movie, boolean favorite) {
+            mContentResolver = contentResolver;
+            this.movie = movie;
+            this.favorite = favorite;
+        }
+
+        @Override
+        public void run() {
+            Movie movieToWrite;
+            boolean favoriteToWrite;
+            synchronized (sPendingWrites) {
+                // from now on a new toggle needs a new write.
+                sPendingWrites.remove(movie.id);
+                movieToWrite = movie;
+                favoriteToWrite = favorite;
+            }
+
+            Uri movieWithID =
+                    MoviesContract.FavoriteMoviesEntry.buildFavoriteUri(movieToWrite.id);
+            if (!favoriteToWrite) {
+                mContentResolver.delete(movieWithID, null, null);
+                return;
+            }
+
+            ContentValues values = toContentValues(movieToWrite);
+            if (values == null) {
+                // the screen didn't know the movie yet, we are on our own thread so we can look.
+                Movie foundMovie = findMovie(movieToWrite.id);
+                values = foundMovie != null ? toContentValues(foundMovie) : null;
+            }
+            if (values != null)
+                mContentResolver.insert(movieWithID, values);
+            else
+                Log.w(TAG, "No title and poster for the favorite " + movieToWrite.id);
+        }
+
+        /**
+         * Finds a movie in the catalog, or asks MovieDB if it is not there.
+         *
+         * @return the movie or null if it could not be found.
+         */
+        private Movie findMovie(int movieID) {
+            Cursor cursor = mContentResolver.query(MoviesContract.CatalogMoviesEntry.CONTENT_URI,
+                    CATALOG_PROJECTION, CATALOG_SELECTION,
+                    new String[]{String.valueOf(movieID)}, null);
+            if (cursor != null) {
+                try {
+                    if (cursor.moveToFirst() && !cursor.isNull(0) && !cursor.isNull(1)) {
+                        Movie movie = new Movie();
+                        movie.id = movieID;
+                        movie.title = cursor.getString(0);
+                        movie.poster_path = cursor.getString(1);
+                        movie.vote_average = cursor.getFloat(2);
+                        if (!cursor.isNull(3))
+                            movie.release_date = new Date(cursor.getLong(3));
+                        movie.overview = cursor.getString(4);
+                        return movie;
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+
+            try {
+                return MovieDBUtil.getMovie(String.valueOf(movieID));
+            } catch (IOException e) {
+                Log.w(TAG, "Could not get the favorite " + movieID, e);
+                return null;
+            }
+        }
+    }
+}
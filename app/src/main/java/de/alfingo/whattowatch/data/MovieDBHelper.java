@@ -16,16 +16,94 @@ class MovieDBHelper extends SQLiteOpenHelper {
      */
     MovieDBHelper(Context context) {
         super(context, MoviesContract.DB_NAME, null, MoviesContract.DB_VERSION);
+        // with the write ahead log the grid and the details keep reading while the catalog or
+        // the favorites are being written, instead of waiting for the writer.
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
         db.execSQL(MoviesContract.FavoriteMoviesEntry.CREATE_TABLE);
+        db.execSQL(MoviesContract.CatalogMoviesEntry.CREATE_TABLE);
+        execAll(db, MoviesContract.FavoriteMoviesEntry.CREATE_INDEXES);
+        execAll(db, MoviesContract.CatalogMoviesEntry.CREATE_INDEXES);
+        db.execSQL(MoviesContract.MovieSearchEntry.CREATE_TABLE);
+        execAll(db, MoviesContract.MovieSearchEntry.CREATE_TRIGGERS);
     }
 
+    /**
+     * Runs every migration between the two versions, one after the other. Migrations only add
+     * what is new in their version, nothing the user stored is ever dropped. Caches may be
+     * emptied.
+     */
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL(MoviesContract.FavoriteMoviesEntry.DROP_TABLE);
-        onCreate(db);
+        for (int version = oldVersion + 1; version <= newVersion; version++)
+            migrateTo(db, version);
+    }
+
+    /**
+     * Migrates the DB from the version before to the given one.
+     *
+     * @param version the version to migrate to.
+     */
+    private static void migrateTo(SQLiteDatabase db, int version) {
+        switch (version) {
+            case 2:
+                // the catalog cache.
+                db.execSQL(MoviesContract.CatalogMoviesEntry.CREATE_TABLE);
+                break;
+            case 3:
+                // more metadata for sorting the favorites, and the indexes for it.
+                String favorites = MoviesContract.FavoriteMoviesEntry.TABLE_NAME;
+                addColumn(db, favorites, MoviesContract.FavoriteMoviesEntry.DATE_ADDED_DEFINITION);
+                addColumn(db, favorites, MoviesContract.FavoriteMoviesEntry.VOTE_AVERAGE_DEFINITION);
+                addColumn(db, favorites, MoviesContract.FavoriteMoviesEntry.RELEASE_DATE_DEFINITION);
+                addColumn(db, favorites, MoviesContract.FavoriteMoviesEntry.OVERVIEW_DEFINITION);
+                // the old favorites keep a date added of 0, so they come after any new one.
+                execAll(db, MoviesContract.FavoriteMoviesEntry.CREATE_INDEXES);
+                execAll(db, MoviesContract.CatalogMoviesEntry.CREATE_INDEXES);
+                break;
+            case 4:
+                // the search index, filled with everything stored until now.
+                db.execSQL(MoviesContract.MovieSearchEntry.CREATE_TABLE);
+                execAll(db, MoviesContract.MovieSearchEntry.CREATE_TRIGGERS);
+                db.execSQL(MoviesContract.MovieSearchEntry.POPULATE);
+                break;
+            case 5:
+                // the catalog is keyed by its page positions now, a movie which moved to
+                // another page doesn't take its old row with it. it is only a cache, so it is
+                // created again empty, deleting the rows first takes them out of the index.
+                String catalog = MoviesContract.CatalogMoviesEntry.TABLE_NAME;
+                db.execSQL("DELETE FROM " + catalog);
+                db.execSQL(MoviesContract.CatalogMoviesEntry.DROP_TABLE);
+                db.execSQL(MoviesContract.CatalogMoviesEntry.CREATE_TABLE);
+                execAll(db, MoviesContract.CatalogMoviesEntry.CREATE_INDEXES);
+                execAll(db, MoviesContract.MovieSearchEntry.DROP_TRIGGERS);
+                execAll(db, MoviesContract.MovieSearchEntry.CREATE_TRIGGERS);
+                break;
+            case 6:
+                // indexing keeps the text already indexed where the new row has none.
+                execAll(db, MoviesContract.MovieSearchEntry.DROP_TRIGGERS);
+                execAll(db, MoviesContract.MovieSearchEntry.CREATE_TRIGGERS);
+                break;
+            default:
+                throw new IllegalStateException("No migration to version " + version);
+        }
+    }
+
+    /**
+     * Adds a column to an existing table, the data in it stays untouched.
+     */
+    private static void addColumn(SQLiteDatabase db, String table, String columnDefinition) {
+        db.execSQL("ALTER TABLE " + table + " ADD COLUMN " + columnDefinition);
+    }
+
+    /**
+     * Executes the statements in order.
+     */
+    private static void execAll(SQLiteDatabase db, String[] statements) {
+        for (String statement : statements)
+            db.execSQL(statement);
     }
 }
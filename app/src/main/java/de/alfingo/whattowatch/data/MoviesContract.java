@@ -10,7 +10,7 @@ import android.provider.BaseColumns;
  */
 public class MoviesContract {
     public final static String DB_NAME = "what-to-watch.db";
-    public final static int DB_VERSION = 1;
+    public final static int DB_VERSION = 6;
 
     public final static String AUTHORITY = "de.alfingo.whattowatch";
 
@@ -18,6 +18,17 @@ public class MoviesContract {
 
     public static final String PATH_FAVORITES = "favorites";
 
+    public static final String PATH_CATALOG = "catalog";
+
+    public static final String PATH_SEARCH = "search";
+
+    /**
+     * Query parameters for reading only a window of the rows, the offset is optional.
+     */
+    public static final String
+            QUERY_PARAMETER_LIMIT = "limit",
+            QUERY_PARAMETER_OFFSET = "offset";
+
     public static class FavoriteMoviesEntry implements BaseColumns {
 
         public final static Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon()
@@ -31,14 +42,345 @@ public class MoviesContract {
 
         public final static String COLUMN_TITLE = "MovieTitle";
 
+        /**
+         * When the movie was marked as favorite, in milliseconds since the epoch. Since version 3.
+         */
+        public final static String COLUMN_DATE_ADDED = "DateAdded";
+
+        /**
+         * The MovieDB rating, from 0 to 10. Since version 3.
+         */
+        public final static String COLUMN_VOTE_AVERAGE = "VoteAverage";
+
+        /**
+         * The release date in milliseconds since the epoch, null if unknown. Since version 3.
+         */
+        public final static String COLUMN_RELEASE_DATE = "ReleaseDate";
+
+        /**
+         * Since version 3.
+         */
+        public final static String COLUMN_OVERVIEW = "Overview";
+
+        /**
+         * The definitions of the columns added in version 3, shared by the table creation and
+         * the migration so both end up with the same schema.
+         */
+        final static String
+                DATE_ADDED_DEFINITION = COLUMN_DATE_ADDED + " INTEGER NOT NULL DEFAULT 0",
+                VOTE_AVERAGE_DEFINITION = COLUMN_VOTE_AVERAGE + " REAL",
+                RELEASE_DATE_DEFINITION = COLUMN_RELEASE_DATE + " INTEGER",
+                OVERVIEW_DEFINITION = COLUMN_OVERVIEW + " TEXT";
+
         public final static String CREATE_TABLE =
                 "CREATE TABLE " + TABLE_NAME + " (" +
                         COLUMN_MOVIE_ID + " INTEGER PRIMARY KEY," +
                         COLUMN_TITLE + " TEXT NOT NULL," +
                         COLUMN_POSTER_PATH + " TEXT NOT NULL," +
+                        DATE_ADDED_DEFINITION + "," +
+                        VOTE_AVERAGE_DEFINITION + "," +
+                        RELEASE_DATE_DEFINITION + "," +
+                        OVERVIEW_DEFINITION + "," +
                         "UNIQUE (" + COLUMN_MOVIE_ID + ") ON CONFLICT REPLACE);";
 
+        /**
+         * The indexes for the sort orders of the favorites screen.
+         */
+        public final static String[] CREATE_INDEXES = {
+                "CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_" + COLUMN_DATE_ADDED +
+                        " ON " + TABLE_NAME + " (" + COLUMN_DATE_ADDED + ");",
+                "CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_" + COLUMN_VOTE_AVERAGE +
+                        " ON " + TABLE_NAME + " (" + COLUMN_VOTE_AVERAGE + ");",
+                "CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_" + COLUMN_TITLE +
+                        " ON " + TABLE_NAME + " (" + COLUMN_TITLE + " COLLATE NOCASE);"
+        };
+
+        public final static String DROP_TABLE =
+                "DROP TABLE IF EXISTS " + TABLE_NAME;
+
+        /**
+         * The sort orders for the favorites, every one of them is backed by an index.
+         */
+        public final static String
+                SORT_ORDER_DATE_ADDED = COLUMN_DATE_ADDED + " DESC",
+                SORT_ORDER_RATING = COLUMN_VOTE_AVERAGE + " DESC",
+                SORT_ORDER_TITLE = COLUMN_TITLE + " COLLATE NOCASE ASC";
+
+        /**
+         * Builds the Uri of a single favorite, its changes are notified on it.
+         *
+         * @param movieID the movie.
+         * @return the uri for favorites/movieID
+         */
+        public static Uri buildFavoriteUri(int movieID) {
+            return CONTENT_URI.buildUpon().appendPath(String.valueOf(movieID)).build();
+        }
+
+        /**
+         * What {@link #getMovieID(Uri)} returns for a change which isn't about a single
+         * favorite, any of them could have changed.
+         */
+        public final static int ALL_MOVIES = -1;
+
+        /**
+         * The opposite of {@link #buildFavoriteUri(int)}, for finding out which favorite a
+         * change notification is about.
+         *
+         * @param uri any uri, null included.
+         * @return the movie ID or {@link #ALL_MOVIES} if the uri is not a favorites/movieID one.
+         */
+        public static int getMovieID(Uri uri) {
+            if (uri == null || uri.getPathSegments().size() != 2
+                    || !PATH_FAVORITES.equals(uri.getPathSegments().get(0)))
+                return ALL_MOVIES;
+            try {
+                return Integer.parseInt(uri.getLastPathSegment());
+            } catch (NumberFormatException e) {
+                return ALL_MOVIES;
+            }
+        }
+
+        /**
+         * Builds the Uri for reading a window of the favorites, so they don't have to be read
+         * all at once.
+         *
+         * @param offset how many rows to skip.
+         * @param limit  how many rows to read at most.
+         * @return the uri for favorites?offset=offset&limit=limit
+         */
+        public static Uri buildWindowUri(int offset, int limit) {
+            return CONTENT_URI.buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_OFFSET, String.valueOf(offset))
+                    .appendQueryParameter(QUERY_PARAMETER_LIMIT, String.valueOf(limit))
+                    .build();
+        }
+    }
+
+    /**
+     * The pages of the popular and top rated lists fetched from MovieDB, so the grid can be shown
+     * before the network answers, or without network at all.
+     */
+    public static class CatalogMoviesEntry implements BaseColumns {
+
+        public final static Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon()
+                .appendPath(PATH_CATALOG).build();
+
+        public final static String TABLE_NAME = "CatalogMovies";
+
+        /**
+         * Which display the row belongs to, the display indexes from integers.xml.
+         */
+        public final static String COLUMN_DISPLAY = "Display";
+
+        public final static String COLUMN_PAGE = "Page";
+
+        /**
+         * The position of the movie inside its page.
+         */
+        public final static String COLUMN_POSITION = "Position";
+
+        public final static String COLUMN_TOTAL_PAGES = "TotalPages";
+
+        public final static String COLUMN_MOVIE_ID = "MovieID";
+
+        public final static String COLUMN_TITLE = "MovieTitle";
+
+        public final static String COLUMN_POSTER_PATH = "PosterPath";
+
+        public final static String COLUMN_BACKDROP_PATH = "BackdropPath";
+
+        public final static String COLUMN_OVERVIEW = "Overview";
+
+        public final static String COLUMN_VOTE_AVERAGE = "VoteAverage";
+
+        public final static String COLUMN_VOTE_COUNT = "VoteCount";
+
+        /**
+         * The release date in milliseconds since the epoch, null if unknown.
+         */
+        public final static String COLUMN_RELEASE_DATE = "ReleaseDate";
+
+        /**
+         * When the page was fetched, in milliseconds since the epoch.
+         */
+        public final static String COLUMN_FETCHED_AT = "FetchedAt";
+
+        public final static String CREATE_TABLE =
+                "CREATE TABLE " + TABLE_NAME + " (" +
+                        _ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+                        COLUMN_DISPLAY + " INTEGER NOT NULL," +
+                        COLUMN_PAGE + " INTEGER NOT NULL," +
+                        COLUMN_POSITION + " INTEGER NOT NULL," +
+                        COLUMN_TOTAL_PAGES + " INTEGER NOT NULL," +
+                        COLUMN_MOVIE_ID + " INTEGER NOT NULL," +
+                        COLUMN_TITLE + " TEXT," +
+                        COLUMN_POSTER_PATH + " TEXT," +
+                        COLUMN_BACKDROP_PATH + " TEXT," +
+                        COLUMN_OVERVIEW + " TEXT," +
+                        COLUMN_VOTE_AVERAGE + " REAL," +
+                        COLUMN_VOTE_COUNT + " INTEGER," +
+                        COLUMN_RELEASE_DATE + " INTEGER," +
+                        COLUMN_FETCHED_AT + " INTEGER NOT NULL," +
+                        "UNIQUE (" + COLUMN_DISPLAY + ", " + COLUMN_PAGE + ", " +
+                        COLUMN_POSITION + ") ON CONFLICT REPLACE);";
+
+        /**
+         * Indexes for reading a display in order and for finding a movie. Since version 3.
+         */
+        public final static String[] CREATE_INDEXES = {
+                "CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_" + COLUMN_DISPLAY + " ON " +
+                        TABLE_NAME + " (" + COLUMN_DISPLAY + ", " + COLUMN_PAGE + ", " +
+                        COLUMN_POSITION + ");",
+                "CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_" + COLUMN_MOVIE_ID + " ON " +
+                        TABLE_NAME + " (" + COLUMN_MOVIE_ID + ");"
+        };
+
         public final static String DROP_TABLE =
                 "DROP TABLE IF EXISTS " + TABLE_NAME;
+
+        /**
+         * The order of the movies as they were in MovieDB.
+         */
+        public final static String SORT_ORDER_CATALOG =
+                COLUMN_PAGE + " ASC, " + COLUMN_POSITION + " ASC";
+
+        /**
+         * Builds the Uri for all the cached movies of a display.
+         *
+         * @param display the display index, as defined in integers.xml
+         * @return the uri for catalog/display
+         */
+        public static Uri buildDisplayUri(int display) {
+            return CONTENT_URI.buildUpon().appendPath(String.valueOf(display)).build();
+        }
+    }
+
+    /**
+     * The full text search index over the title and overview of every movie we have stored,
+     * favorites and catalog. The doc ID is the movie ID, it is kept in sync by triggers so no
+     * code writes into it directly.
+     */
+    public static class MovieSearchEntry {
+
+        /**
+         * Searches every stored movie, the query is appended as the last path segment.
+         */
+        public final static Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon()
+                .appendPath(PATH_SEARCH).build();
+
+        /**
+         * Searches only the favorites, the query is appended as the last path segment.
+         */
+        public final static Uri FAVORITES_CONTENT_URI = FavoriteMoviesEntry.CONTENT_URI
+                .buildUpon().appendPath(PATH_SEARCH).build();
+
+        public final static String TABLE_NAME = "MovieSearch";
+
+        public final static String COLUMN_TITLE = "MovieTitle";
+
+        public final static String COLUMN_OVERVIEW = "Overview";
+
+        /**
+         * The columns of a search result, besides the title.
+         */
+        public final static String
+                COLUMN_MOVIE_ID = "MovieID",
+                COLUMN_POSTER_PATH = "PosterPath",
+                COLUMN_IS_FAVORITE = "IsFavorite";
+
+        public final static String CREATE_TABLE =
+                "CREATE VIRTUAL TABLE " + TABLE_NAME + " USING fts4(" +
+                        COLUMN_TITLE + ", " + COLUMN_OVERVIEW + ");";
+
+        /**
+         * Keeps the index in sync with the favorites and the catalog. A movie stays indexed as
+         * long as it is in one of them.
+         */
+        public final static String[] CREATE_TRIGGERS = {
+                createIndexingTrigger(FavoriteMoviesEntry.TABLE_NAME),
+                createIndexingTrigger(CatalogMoviesEntry.TABLE_NAME),
+                "CREATE TRIGGER " + FavoriteMoviesEntry.TABLE_NAME + "_unindex AFTER DELETE ON " +
+                        FavoriteMoviesEntry.TABLE_NAME + " WHEN NOT EXISTS (SELECT 1 FROM " +
+                        CatalogMoviesEntry.TABLE_NAME + " WHERE " +
+                        CatalogMoviesEntry.COLUMN_MOVIE_ID + " = old." +
+                        FavoriteMoviesEntry.COLUMN_MOVIE_ID + ") BEGIN " +
+                        "DELETE FROM " + TABLE_NAME + " WHERE docid = old." +
+                        FavoriteMoviesEntry.COLUMN_MOVIE_ID + "; END;",
+                "CREATE TRIGGER " + CatalogMoviesEntry.TABLE_NAME + "_unindex AFTER DELETE ON " +
+                        CatalogMoviesEntry.TABLE_NAME + " WHEN NOT EXISTS (SELECT 1 FROM " +
+                        FavoriteMoviesEntry.TABLE_NAME + " WHERE " +
+                        FavoriteMoviesEntry.COLUMN_MOVIE_ID + " = old." +
+                        CatalogMoviesEntry.COLUMN_MOVIE_ID + ") AND NOT EXISTS (SELECT 1 FROM " +
+                        CatalogMoviesEntry.TABLE_NAME + " WHERE " +
+                        CatalogMoviesEntry.COLUMN_MOVIE_ID + " = old." +
+                        CatalogMoviesEntry.COLUMN_MOVIE_ID + ") BEGIN " +
+                        "DELETE FROM " + TABLE_NAME + " WHERE docid = old." +
+                        CatalogMoviesEntry.COLUMN_MOVIE_ID + "; END;"
+        };
+
+        /**
+         * Drops all the triggers, so they can be created again after a table changed.
+         */
+        public final static String[] DROP_TRIGGERS = {
+                "DROP TRIGGER IF EXISTS " + FavoriteMoviesEntry.TABLE_NAME + "_index",
+                "DROP TRIGGER IF EXISTS " + CatalogMoviesEntry.TABLE_NAME + "_index",
+                "DROP TRIGGER IF EXISTS " + FavoriteMoviesEntry.TABLE_NAME + "_unindex",
+                "DROP TRIGGER IF EXISTS " + CatalogMoviesEntry.TABLE_NAME + "_unindex"
+        };
+
+        /**
+         * Indexes the movies stored before the index existed.
+         */
+        public final static String POPULATE =
+                "INSERT INTO " + TABLE_NAME + " (docid, " + COLUMN_TITLE + ", " +
+                        COLUMN_OVERVIEW + ") SELECT " + FavoriteMoviesEntry.COLUMN_MOVIE_ID +
+                        ", " + FavoriteMoviesEntry.COLUMN_TITLE + ", " +
+                        FavoriteMoviesEntry.COLUMN_OVERVIEW + " FROM " +
+                        FavoriteMoviesEntry.TABLE_NAME + " UNION SELECT " +
+                        CatalogMoviesEntry.COLUMN_MOVIE_ID + ", " + CatalogMoviesEntry.COLUMN_TITLE +
+                        ", " + CatalogMoviesEntry.COLUMN_OVERVIEW + " FROM " +
+                        CatalogMoviesEntry.TABLE_NAME + " WHERE " +
+                        CatalogMoviesEntry.COLUMN_MOVIE_ID + " NOT IN (SELECT " +
+                        FavoriteMoviesEntry.COLUMN_MOVIE_ID + " FROM " +
+                        FavoriteMoviesEntry.TABLE_NAME + ") GROUP BY " +
+                        CatalogMoviesEntry.COLUMN_MOVIE_ID;
+
+        /**
+         * Builds the trigger which (re)indexes every movie inserted into a table. The table must
+         * have the MovieID, MovieTitle and Overview columns. A movie already indexed keeps its
+         * title or overview where the new row has none, a favorite stored without its overview
+         * doesn't take the catalog's out of the index.
+         */
+        private static String createIndexingTrigger(String table) {
+            return "CREATE TRIGGER " + table + "_index AFTER INSERT ON " + table + " BEGIN " +
+                    "UPDATE " + TABLE_NAME + " SET " +
+                    COLUMN_TITLE + " = COALESCE(new." + COLUMN_TITLE + ", " + COLUMN_TITLE + "), " +
+                    COLUMN_OVERVIEW + " = COALESCE(new." + COLUMN_OVERVIEW + ", " +
+                    COLUMN_OVERVIEW + ") WHERE docid = new." + COLUMN_MOVIE_ID + "; " +
+                    "INSERT INTO " + TABLE_NAME + " (docid, " + COLUMN_TITLE + ", " +
+                    COLUMN_OVERVIEW + ") SELECT new." + COLUMN_MOVIE_ID + ", new." +
+                    COLUMN_TITLE + ", new." + COLUMN_OVERVIEW + " WHERE NOT EXISTS (SELECT 1 FROM " +
+                    TABLE_NAME + " WHERE docid = new." + COLUMN_MOVIE_ID + "); END;";
+        }
+
+        /**
+         * Builds the Uri for searching all the stored movies.
+         *
+         * @param query what the user typed.
+         * @return the uri for search/query
+         */
+        public static Uri buildSearchUri(String query) {
+            return CONTENT_URI.buildUpon().appendPath(query).build();
+        }
+
+        /**
+         * Builds the Uri for searching only the favorites.
+         *
+         * @param query what the user typed.
+         * @return the uri for favorites/search/query
+         */
+        public static Uri buildFavoritesSearchUri(String query) {
+            return FAVORITES_CONTENT_URI.buildUpon().appendPath(query).build();
+        }
     }
-}
+}
\ No newline at end of file
@@ -1,18 +1,34 @@
 package de.alfingo.whattowatch.data;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.MatrixCursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.util.Log;
 
-import java.io.IOException;
-
-import de.alfingo.whattowatch.Movie;
-import de.alfingo.whattowatch.utilities.MovieDBUtil;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 /**
  * a simple practically boilerplate content provider.
@@ -21,19 +37,105 @@ import de.alfingo.whattowatch.utilities.MovieDBUtil;
  */
 public class MoviesProvider extends ContentProvider{
 
+    private final static String TAG = MoviesProvider.class.getSimpleName();
+
     private final static int FAVORITES = 100;
     private final static int FAVORITE_WITH_ID = 101;
+    private final static int CATALOG = 200;
+    private final static int CATALOG_WITH_DISPLAY = 201;
+    private final static int SEARCH = 300;
+    private final static int FAVORITES_SEARCH = 301;
+
+    /**
+     * The columns of every search result, the movie ID doubles as _id for the cursor adapters.
+     */
+    private final static String[] SEARCH_COLUMNS = {
+            MoviesContract.FavoriteMoviesEntry._ID,
+            MoviesContract.MovieSearchEntry.COLUMN_MOVIE_ID,
+            MoviesContract.MovieSearchEntry.COLUMN_TITLE,
+            MoviesContract.MovieSearchEntry.COLUMN_POSTER_PATH,
+            MoviesContract.MovieSearchEntry.COLUMN_IS_FAVORITE
+    };
+
+    /**
+     * How much a hit counts in each column of the index, in the order of its columns. A word in
+     * the title says a lot more about the movie than one in the overview.
+     */
+    private final static double[] SEARCH_COLUMN_WEIGHTS = {10.0, 1.0};
+
+    /**
+     * Searches the index, the poster comes from the favorite or else from the catalog. The last
+     * column has the match info the results are ranked by, the title order breaks the ties.
+     */
+    private final static String SEARCH_QUERY =
+            "SELECT s.docid AS " + SEARCH_COLUMNS[0] +
+                    ", s.docid AS " + SEARCH_COLUMNS[1] +
+                    ", s." + MoviesContract.MovieSearchEntry.COLUMN_TITLE + " AS " + SEARCH_COLUMNS[2] +
+                    ", COALESCE(f." + MoviesContract.FavoriteMoviesEntry.COLUMN_POSTER_PATH +
+                    ", (SELECT " + MoviesContract.CatalogMoviesEntry.COLUMN_POSTER_PATH +
+                    " FROM " + MoviesContract.CatalogMoviesEntry.TABLE_NAME +
+                    " WHERE " + MoviesContract.CatalogMoviesEntry.COLUMN_MOVIE_ID +
+                    " = s.docid LIMIT 1)) AS " + SEARCH_COLUMNS[3] +
+                    ", f." + MoviesContract.FavoriteMoviesEntry.COLUMN_MOVIE_ID +
+                    " IS NOT NULL AS " + SEARCH_COLUMNS[4] +
+                    ", matchinfo(s." + MoviesContract.MovieSearchEntry.TABLE_NAME + ", 'pcx')" +
+                    " FROM " + MoviesContract.MovieSearchEntry.TABLE_NAME + " s %s JOIN " +
+                    MoviesContract.FavoriteMoviesEntry.TABLE_NAME + " f ON f." +
+                    MoviesContract.FavoriteMoviesEntry.COLUMN_MOVIE_ID + " = s.docid" +
+                    " WHERE " + MoviesContract.MovieSearchEntry.TABLE_NAME + " MATCH ?" +
+                    " ORDER BY s." + MoviesContract.MovieSearchEntry.COLUMN_TITLE +
+                    " COLLATE NOCASE";
+
+    /**
+     * The columns the compiled favorite insert binds, in order.
+     */
+    private final static String[] FAVORITE_COLUMNS = {
+            MoviesContract.FavoriteMoviesEntry.COLUMN_MOVIE_ID,
+            MoviesContract.FavoriteMoviesEntry.COLUMN_TITLE,
+            MoviesContract.FavoriteMoviesEntry.COLUMN_POSTER_PATH,
+            MoviesContract.FavoriteMoviesEntry.COLUMN_DATE_ADDED,
+            MoviesContract.FavoriteMoviesEntry.COLUMN_VOTE_AVERAGE,
+            MoviesContract.FavoriteMoviesEntry.COLUMN_RELEASE_DATE,
+            MoviesContract.FavoriteMoviesEntry.COLUMN_OVERVIEW
+    };
+
+    private final static Set<String> FAVORITE_COLUMNS_SET =
+            new HashSet<>(Arrays.asList(FAVORITE_COLUMNS));
+
+    private final static String INSERT_FAVORITE_SQL = buildInsertFavoriteSql();
+
+    private final static String COUNT_FAVORITE_SQL = "SELECT COUNT(*) FROM " +
+            MoviesContract.FavoriteMoviesEntry.TABLE_NAME + " WHERE " +
+            MoviesContract.FavoriteMoviesEntry.COLUMN_MOVIE_ID + "=?";
 
     private final UriMatcher sUriMatcher = buildMatcher();
 
     private MovieDBHelper mMovieDBHelper;
 
+    /**
+     * The uris changed by the batch running on this thread, null if there is no batch.
+     */
+    private final ThreadLocal<Set<Uri>> mBatchChangedUris = new ThreadLocal<>();
+
+    /**
+     * The favorite insert compiled for the transaction running on this thread, null outside of
+     * one. Only that thread uses it, so it needs no lock, and it is closed with the transaction.
+     */
+    private final ThreadLocal<SQLiteStatement> mBatchInsertFavoriteStatement =
+            new ThreadLocal<>();
+
     private static UriMatcher buildMatcher() {
         UriMatcher matcher = new UriMatcher(UriMatcher.NO_MATCH);
 
         matcher.addURI(MoviesContract.AUTHORITY, MoviesContract.PATH_FAVORITES, FAVORITES);
         matcher.addURI(MoviesContract.AUTHORITY, MoviesContract.PATH_FAVORITES + "/#",
                 FAVORITE_WITH_ID);
+        matcher.addURI(MoviesContract.AUTHORITY, MoviesContract.PATH_CATALOG, CATALOG);
+        matcher.addURI(MoviesContract.AUTHORITY, MoviesContract.PATH_CATALOG + "/#",
+                CATALOG_WITH_DISPLAY);
+        matcher.addURI(MoviesContract.AUTHORITY, MoviesContract.PATH_SEARCH + "/*", SEARCH);
+        matcher.addURI(MoviesContract.AUTHORITY, MoviesContract.PATH_FAVORITES + "/" +
+                MoviesContract.PATH_SEARCH + "/*", FAVORITES_SEARCH);
 
         return matcher;
     }
@@ -54,14 +156,34 @@ public class MoviesProvider extends ContentProvider{
         switch (match) {
             case FAVORITES:
                 returnCursor = db.query(MoviesContract.FavoriteMoviesEntry.TABLE_NAME, projection, selection,
-                        selectionArgs, null, null, sortOrder);
+                        selectionArgs, null, null, sortOrder, getLimit(uri));
                 break;
             case FAVORITE_WITH_ID:
+                // asking only if the movie is a favorite doesn't need a real query.
+                if (projection != null && projection.length == 1 &&
+                        MoviesContract.FavoriteMoviesEntry._COUNT.equals(projection[0])) {
+                    returnCursor = countFavorite(db, uri.getLastPathSegment());
+                    break;
+                }
                 String[] movieID = new String[]{uri.getLastPathSegment()};
                 String idSelection = MoviesContract.FavoriteMoviesEntry.COLUMN_MOVIE_ID + "=?";
                 returnCursor = db.query(MoviesContract.FavoriteMoviesEntry.TABLE_NAME, projection,
                         idSelection, movieID, null, null, sortOrder);
                 break;
+            case CATALOG:
+                returnCursor = db.query(MoviesContract.CatalogMoviesEntry.TABLE_NAME, projection,
+                        selection, selectionArgs, null, null, sortOrder, getLimit(uri));
+                break;
+            case CATALOG_WITH_DISPLAY:
+                returnCursor = db.query(MoviesContract.CatalogMoviesEntry.TABLE_NAME, projection,
+                        withDisplay(selection), withDisplay(uri, selectionArgs), null, null,
+                        sortOrder != null ? sortOrder :
+                                MoviesContract.CatalogMoviesEntry.SORT_ORDER_CATALOG);
+                break;
+            case SEARCH:
+            case FAVORITES_SEARCH:
+                returnCursor = search(db, uri.getLastPathSegment(), match == FAVORITES_SEARCH);
+                break;
             default:
                 throw new UnsupportedOperationException("Unknown URI: " + uri);
         }
@@ -73,6 +195,114 @@ public class MoviesProvider extends ContentProvider{
         return returnCursor;
     }
 
+    /**
+     * Reads the window asked for in the query parameters, they are parsed so nothing but
+     * numbers end up in the SQL.
+     *
+     * @return the limit clause or null if the uri has no limit.
+     * @throws IllegalArgumentException if the limit or offset are not numbers.
+     */
+    @Nullable
+    private static String getLimit(Uri uri) {
+        String limit = uri.getQueryParameter(MoviesContract.QUERY_PARAMETER_LIMIT);
+        if (limit == null)
+            return null;
+        String offset = uri.getQueryParameter(MoviesContract.QUERY_PARAMETER_OFFSET);
+        try {
+            return offset == null ? String.valueOf(Integer.parseInt(limit)) :
+                    Integer.parseInt(offset) + "," + Integer.parseInt(limit);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a valid window: " + uri, e);
+        }
+    }
+
+    /**
+     * Searches the titles and overviews of the stored movies, every word typed is used as a
+     * prefix so the results show up while the user is still typing. The projection and sort
+     * order of the caller are ignored, the results always have the search columns ranked by
+     * relevance.
+     */
+    private static Cursor search(SQLiteDatabase db, String query, boolean favoritesOnly) {
+        String matchQuery = toMatchQuery(query);
+        if (matchQuery == null)
+            return new MatrixCursor(SEARCH_COLUMNS, 0);
+
+        String sql = String.format(SEARCH_QUERY, favoritesOnly ? "INNER" : "LEFT");
+        Cursor cursor = db.rawQuery(sql, new String[]{matchQuery});
+        try {
+            int matchInfoIndex = SEARCH_COLUMNS.length;
+            List<SearchResult> results = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                Object[] row = {
+                        cursor.getLong(0),
+                        cursor.getLong(1),
+                        cursor.getString(2),
+                        cursor.getString(3),
+                        cursor.getInt(4)
+                };
+                results.add(new SearchResult(row, rank(cursor.getBlob(matchInfoIndex))));
+            }
+            // the sort is stable, so equally ranked movies stay in the title order.
+            Collections.sort(results, new Comparator<SearchResult>() {
+                @Override
+                public int compare(SearchResult first, SearchResult second) {
+                    return Double.compare(second.mRank, first.mRank);
+                }
+            });
+
+            MatrixCursor rankedCursor = new MatrixCursor(SEARCH_COLUMNS, results.size());
+            for (SearchResult result : results)
+                rankedCursor.addRow(result.mRow);
+            return rankedCursor;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Ranks a search result by its matchinfo 'pcx' blob: the phrase and column counts, then
+     * for every phrase and column the hits in this row, in all rows and the rows with a hit.
+     * Every hit is weighted by its column and by how rare the word is in that column.
+     */
+    private static double rank(byte[] matchInfo) {
+        IntBuffer info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = info.get(0);
+        int columns = info.get(1);
+        double rank = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns && column < SEARCH_COLUMN_WEIGHTS.length;
+                 column++) {
+                int hits = 2 + 3 * (phrase * columns + column);
+                int rowHits = info.get(hits);
+                if (rowHits > 0)
+                    rank += SEARCH_COLUMN_WEIGHTS[column] * rowHits / info.get(hits + 1);
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Turns what the user typed into a full text query, the FTS syntax characters are dropped
+     * and the words lower cased (an upper case OR or NOT is an operator) so nothing typed can
+     * break the query.
+     *
+     * @return the words as prefixes, or null if there is nothing to search for.
+     */
+    private static String toMatchQuery(String query) {
+        if (query == null)
+            return null;
+
+        StringBuilder matchQuery = new StringBuilder();
+        for (String word : query.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty())
+                continue;
+            if (matchQuery.length() > 0)
+                matchQuery.append(' ');
+            matchQuery.append(word.toLowerCase(Locale.ROOT)).append('*');
+        }
+        return matchQuery.length() > 0 ? matchQuery.toString() : null;
+    }
+
     @Nullable
     @Override
     public String getType(@NonNull Uri uri) {
@@ -83,42 +313,222 @@ public class MoviesProvider extends ContentProvider{
     @Override
     public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
         int match = sUriMatcher.match(uri);
-        long rowID = -1;
         SQLiteDatabase db = mMovieDBHelper.getWritableDatabase();
 
+        long rowID = insertRow(db, match, uri, values);
+
+        if(rowID != -1)
+            notifyChange(getChangedUri(match, uri, values));
+
+        return uri;
+    }
+
+    /**
+     * A favorite inserted through the collection is notified on its own uri too, so only the
+     * observers of that movie and of the whole collection hear about it.
+     */
+    private static Uri getChangedUri(int match, Uri uri, @Nullable ContentValues values) {
+        String movieID = MoviesContract.FavoriteMoviesEntry.COLUMN_MOVIE_ID;
+        if (match == FAVORITES && values != null && values.getAsInteger(movieID) != null)
+            return MoviesContract.FavoriteMoviesEntry.buildFavoriteUri(
+                    values.getAsInteger(movieID));
+        return uri;
+    }
+
+    /**
+     * Inserts all the rows in one transaction, so there is only one disk sync and one change
+     * notification for all of them. Only the favorites and the catalog of a display support it.
+     */
+    @Override
+    public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
+        int match = sUriMatcher.match(uri);
+        if (match != FAVORITES && match != CATALOG_WITH_DISPLAY)
+            return super.bulkInsert(uri, values);
+
+        SQLiteDatabase db = mMovieDBHelper.getWritableDatabase();
+        int rowsInserted = 0;
+        db.beginTransaction();
+        try {
+            if (match == FAVORITES)
+                startBatchStatements(db);
+            for (ContentValues rowValues : values) {
+                if (insertRow(db, match, uri, rowValues) != -1)
+                    rowsInserted++;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            closeBatchStatements();
+            db.endTransaction();
+        }
+
+        if (rowsInserted > 0)
+            notifyChange(uri);
+
+        return rowsInserted;
+    }
+
+    /**
+     * Applies all the operations in one transaction, if one fails none is applied. The observers
+     * are notified once per uri after everything was committed.
+     */
+    @NonNull
+    @Override
+    public ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        SQLiteDatabase db = mMovieDBHelper.getWritableDatabase();
+        Set<Uri> changedUris = new LinkedHashSet<>();
+        ContentProviderResult[] results;
+
+        mBatchChangedUris.set(changedUris);
+        db.beginTransaction();
+        try {
+            startBatchStatements(db);
+            results = super.applyBatch(operations);
+            db.setTransactionSuccessful();
+        } finally {
+            closeBatchStatements();
+            db.endTransaction();
+            mBatchChangedUris.remove();
+        }
+
+        for (Uri changedUri : changedUris)
+            notifyChange(changedUri);
+
+        return results;
+    }
+
+    /**
+     * Inserts a single row, without notifying anyone.
+     *
+     * @return the row ID or -1 if nothing was inserted.
+     */
+    private long insertRow(SQLiteDatabase db, int match, Uri uri, ContentValues values) {
+        long rowID = -1;
+
         switch (match) {
             case FAVORITES:
-                rowID = db.insertWithOnConflict(MoviesContract.FavoriteMoviesEntry.TABLE_NAME,
-                        null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                rowID = insertFavorite(db, withDateAdded(values));
                 break;
             case FAVORITE_WITH_ID:
-
-                try {
-                    String id = uri.getLastPathSegment();
-                    Movie favMovie = MovieDBUtil.getMovie(id);
-                    ContentValues cv = new ContentValues();
-                    cv.put(MoviesContract.FavoriteMoviesEntry.COLUMN_MOVIE_ID,
-                            favMovie.id);
-                    cv.put(MoviesContract.FavoriteMoviesEntry.COLUMN_POSTER_PATH,
-                            favMovie.poster_path);
-                    cv.put(MoviesContract.FavoriteMoviesEntry.COLUMN_TITLE,
-                            favMovie.title);
-                    rowID = db.insertWithOnConflict(MoviesContract.FavoriteMoviesEntry.TABLE_NAME,
-                            null, cv, SQLiteDatabase.CONFLICT_REPLACE);
-                } catch (IOException e) {
-                    e.printStackTrace();
+                // finding the values is up to the caller, the provider never goes to the
+                // network, it could be in the middle of a transaction.
+                if (values == null || values.size() == 0) {
+                    Log.w(TAG, "Ignoring a favorite without values: " + uri);
+                    break;
                 }
+                String id = uri.getLastPathSegment();
+                ContentValues favoriteValues = new ContentValues(values);
+                favoriteValues.put(MoviesContract.FavoriteMoviesEntry.COLUMN_MOVIE_ID,
+                        Integer.parseInt(id));
+                rowID = insertFavorite(db, withDateAdded(favoriteValues));
+                break;
+            case CATALOG_WITH_DISPLAY:
+                ContentValues catalogValues = new ContentValues(values);
+                catalogValues.put(MoviesContract.CatalogMoviesEntry.COLUMN_DISPLAY,
+                        Integer.parseInt(uri.getLastPathSegment()));
+                rowID = db.insertWithOnConflict(MoviesContract.CatalogMoviesEntry.TABLE_NAME,
+                        null, catalogValues, SQLiteDatabase.CONFLICT_REPLACE);
                 break;
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
 
-        if(rowID != -1) {
-            //noinspection ConstantConditions
-            getContext().getContentResolver().notifyChange(uri, null);
+        return rowID;
+    }
+
+    /**
+     * Inserts or replaces a favorite. In a transaction with its compiled statement, a single
+     * insert and values with columns it doesn't know take the normal way.
+     *
+     * @return the row ID or -1 if nothing was inserted.
+     */
+    private long insertFavorite(SQLiteDatabase db, ContentValues values) {
+        SQLiteStatement statement = mBatchInsertFavoriteStatement.get();
+        if (statement == null || values == null
+                || !FAVORITE_COLUMNS_SET.containsAll(values.keySet()))
+            return db.insertWithOnConflict(MoviesContract.FavoriteMoviesEntry.TABLE_NAME,
+                    null, values, SQLiteDatabase.CONFLICT_REPLACE);
+
+        try {
+            for (int i = 0; i < FAVORITE_COLUMNS.length; i++)
+                DatabaseUtils.bindObjectToProgram(statement, i + 1,
+                        values.get(FAVORITE_COLUMNS[i]));
+            return statement.executeInsert();
+        } catch (SQLException e) {
+            // the same as insertWithOnConflict does.
+            Log.e(TAG, "Error inserting " + values, e);
+            return -1;
+        } finally {
+            statement.clearBindings();
         }
+    }
 
-        return uri;
+    /**
+     * Counts the favorites with the ID, one or none. The connection keeps the statement
+     * compiled between the calls.
+     *
+     * @return a cursor with only the _count column.
+     */
+    private static Cursor countFavorite(SQLiteDatabase db, String movieID) {
+        long count = DatabaseUtils.longForQuery(db, COUNT_FAVORITE_SQL, new String[]{movieID});
+
+        MatrixCursor cursor = new MatrixCursor(
+                new String[]{MoviesContract.FavoriteMoviesEntry._COUNT}, 1);
+        cursor.addRow(new Object[]{count});
+        return cursor;
+    }
+
+    /**
+     * Compiles the favorite insert for the transaction this thread just began.
+     */
+    private void startBatchStatements(SQLiteDatabase db) {
+        mBatchInsertFavoriteStatement.set(db.compileStatement(INSERT_FAVORITE_SQL));
+    }
+
+    /**
+     * Closes the statements of this thread's transaction, before it ends.
+     */
+    private void closeBatchStatements() {
+        SQLiteStatement statement = mBatchInsertFavoriteStatement.get();
+        mBatchInsertFavoriteStatement.remove();
+        if (statement != null)
+            statement.close();
+    }
+
+    private static String buildInsertFavoriteSql() {
+        StringBuilder sql = new StringBuilder("INSERT OR REPLACE INTO ")
+                .append(MoviesContract.FavoriteMoviesEntry.TABLE_NAME).append(" (");
+        for (int i = 0; i < FAVORITE_COLUMNS.length; i++)
+            sql.append(i > 0 ? "," : "").append(FAVORITE_COLUMNS[i]);
+        sql.append(") VALUES (");
+        for (int i = 0; i < FAVORITE_COLUMNS.length; i++)
+            sql.append(i > 0 ? ",?" : "?");
+        return sql.append(")").toString();
+    }
+
+    /**
+     * Sets the date added of a favorite to now, if the caller didn't set one.
+     */
+    private static ContentValues withDateAdded(ContentValues values) {
+        String dateAdded = MoviesContract.FavoriteMoviesEntry.COLUMN_DATE_ADDED;
+        if (values == null || values.containsKey(dateAdded))
+            return values;
+        ContentValues valuesWithDate = new ContentValues(values);
+        valuesWithDate.put(dateAdded, System.currentTimeMillis());
+        return valuesWithDate;
+    }
+
+    /**
+     * Notifies the observers of an uri, during a batch the notification waits until the batch
+     * is committed.
+     */
+    private void notifyChange(Uri uri) {
+        Set<Uri> batchChangedUris = mBatchChangedUris.get();
+        if (batchChangedUris != null)
+            batchChangedUris.add(uri);
+        else
+            //noinspection ConstantConditions
+            getContext().getContentResolver().notifyChange(uri, null);
     }
 
     @Override
@@ -138,19 +548,57 @@ public class MoviesProvider extends ContentProvider{
                 rowsDeleted = db.delete(MoviesContract.FavoriteMoviesEntry.TABLE_NAME, idSelection,
                         movieID);
                 break;
+            case CATALOG:
+                rowsDeleted = db.delete(MoviesContract.CatalogMoviesEntry.TABLE_NAME, selection,
+                        selectionArgs);
+                break;
+            case CATALOG_WITH_DISPLAY:
+                rowsDeleted = db.delete(MoviesContract.CatalogMoviesEntry.TABLE_NAME,
+                        withDisplay(selection), withDisplay(uri, selectionArgs));
+                break;
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
 
         if(rowsDeleted > 0)
-            //noinspection ConstantConditions
-            getContext().getContentResolver().notifyChange(uri, null);
+            notifyChange(uri);
 
         return rowsDeleted;
     }
 
+    /**
+     * Restricts a catalog selection to one display.
+     */
+    private static String withDisplay(@Nullable String selection) {
+        return DatabaseUtils.concatenateWhere(
+                MoviesContract.CatalogMoviesEntry.COLUMN_DISPLAY + "=?", selection);
+    }
+
+    /**
+     * Adds the display from the catalog/# uri in front of the selection arguments.
+     */
+    private static String[] withDisplay(@NonNull Uri uri, @Nullable String[] selectionArgs) {
+        return DatabaseUtils.appendSelectionArgs(new String[]{uri.getLastPathSegment()},
+                selectionArgs);
+    }
+
     @Override
     public int update(@NonNull Uri uri, @Nullable ContentValues values, @Nullable String selection, @Nullable String[] selectionArgs) {
         throw new UnsupportedOperationException("Not yet implemented, for now not needed!");
     }
+
+    /**
+     * A row of the search results with the rank it is sorted by.
+     */
+    private static class SearchResult {
+
+        final Object[] mRow;
+
+        final double mRank;
+
+        SearchResult(Object[] row, double rank) {
+            mRow = row;
+            mRank = rank;
+        }
+    }
 }
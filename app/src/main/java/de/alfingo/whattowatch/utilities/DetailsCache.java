@@ -0,0 +1,236 @@
+package de.alfingo.whattowatch.utilities;
+
+import android.util.Log;
+
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import de.alfingo.whattowatch.Movie;
+
+/**
+ * Keeps the movie details, reviews and videos included, on the disk. Every movie is one file
+ * named after its ID, in the {@link MovieBinaryCodec} encoding. An entry older than the time to
+ * live is still served, but refreshed from MovieDB in the background for the next visit.
+ *
+ * @author Rafael
+ * @since 18.10.2026
+ */
+final class DetailsCache {
+
+    private static final String TAG = DetailsCache.class.getSimpleName();
+
+    static final long DEFAULT_TTL_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * The oldest entries are deleted after this, a few hundred KB in total.
+     */
+    private static final int MAX_ENTRIES = 200;
+
+    private static final String ENTRY_SUFFIX = ".bin", TEMP_SUFFIX = ".tmp";
+
+    /**
+     * The entries were JSON before, they can't be read anymore.
+     */
+    private static final String OLD_ENTRY_SUFFIX = ".json";
+
+    private final File mDirectory;
+
+    private volatile long mTtlMillis = DEFAULT_TTL_MILLIS;
+
+    /**
+     * Writes and refreshes one after the other, never on the caller's thread.
+     */
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * The movies being refreshed right now, so a movie is not refreshed twice.
+     */
+    private final Set<String> mRefreshing = new HashSet<>();
+
+    /**
+     * A movie read from the cache.
+     */
+    static class Entry {
+        final Movie movie;
+        final boolean fresh;
+
+        Entry(Movie movie, boolean fresh) {
+            this.movie = movie;
+            this.fresh = fresh;
+        }
+    }
+
+    DetailsCache(File directory) {
+        mDirectory = directory;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                deleteOldEntries();
+            }
+        });
+    }
+
+    void setTtl(long ttlMillis) {
+        mTtlMillis = ttlMillis;
+    }
+
+    /**
+     * Reads a movie, a broken entry is deleted.
+     *
+     * @return the movie or null if it is not cached.
+     */
+    Entry get(String movieID) {
+        File file = getFile(movieID, ENTRY_SUFFIX);
+        long storedAt = file.lastModified();
+        if (storedAt == 0)
+            return null;
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            Movie movie = MovieBinaryCodec.readMovie(in);
+            return new Entry(movie, System.currentTimeMillis() - storedAt < mTtlMillis);
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping the cached details of " + movieID, e);
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Writes a movie in the background.
+     */
+    void put(final String movieID, final Movie movie) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(movieID, movie);
+            }
+        });
+    }
+
+    /**
+     * Gets the movie from MovieDB again in the background, if it isn't already.
+     */
+    void refresh(final String movieID) {
+        synchronized (mRefreshing) {
+            if (!mRefreshing.add(movieID))
+                return;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    write(movieID, MovieDBUtil.getMovieDetails(movieID,
+                            MovieDBUtil.DETAILS_APPEND_TO_RESPONSE));
+                } catch (IOException | JsonParseException e) {
+                    // the old entry stays, it is tried again on the next visit.
+                    Log.w(TAG, "Could not refresh the details of " + movieID, e);
+                } finally {
+                    synchronized (mRefreshing) {
+                        mRefreshing.remove(movieID);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes into a temporary file first, so a reader never sees half an entry.
+     */
+    private void write(String movieID, Movie movie) {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log.w(TAG, "No details cache directory: " + mDirectory);
+            return;
+        }
+
+        File tempFile = getFile(movieID, TEMP_SUFFIX);
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            MovieBinaryCodec.writeMovie(out, movie);
+            out.close();
+            out = null;
+            if (!tempFile.renameTo(getFile(movieID, ENTRY_SUFFIX)))
+                throw new IOException("Could not rename " + tempFile);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not cache the details of " + movieID, e);
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+        } finally {
+            closeQuietly(out);
+        }
+
+        trim();
+    }
+
+    /**
+     * Deletes the oldest entries until there are not more than {@link #MAX_ENTRIES}.
+     */
+    private void trim() {
+        File[] entries = mDirectory.listFiles();
+        if (entries == null || entries.length <= MAX_ENTRIES)
+            return;
+        Arrays.sort(entries, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                long firstModified = first.lastModified(), secondModified = second.lastModified();
+                return firstModified < secondModified ? -1 :
+                        (firstModified == secondModified ? 0 : 1);
+            }
+        });
+        for (int i = 0; i < entries.length - MAX_ENTRIES; i++)
+            //noinspection ResultOfMethodCallIgnored
+            entries[i].delete();
+    }
+
+    /**
+     * Deletes the entries of the old encoding, so they don't take the place of new ones.
+     */
+    private void deleteOldEntries() {
+        File[] oldEntries = mDirectory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File directory, String name) {
+                return name.endsWith(OLD_ENTRY_SUFFIX);
+            }
+        });
+        if (oldEntries == null)
+            return;
+        for (File oldEntry : oldEntries)
+            //noinspection ResultOfMethodCallIgnored
+            oldEntry.delete();
+    }
+
+    private File getFile(String movieID, String suffix) {
+        return new File(mDirectory, movieID + suffix);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null)
+            return;
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
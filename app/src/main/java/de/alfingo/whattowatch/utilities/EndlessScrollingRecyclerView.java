@@ -1,10 +1,20 @@
 package de.alfingo.whattowatch.utilities;
 
+import android.os.SystemClock;
 import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.view.View;
 
+import java.util.ArrayDeque;
+
+/**
+ * Calls {@link #onLoadMore(int, int, RecyclerView)} before the user reaches the end of the list.
+ * Besides the fixed threshold, the scroll velocity and how long the last pages took to arrive are
+ * measured, so on fast flings the next pages are requested early enough to be there in time. Up
+ * to {@link #setMaxQueuedPages(int) N} pages can be requested ahead.
+ */
 public abstract class EndlessScrollingRecyclerView extends RecyclerView.OnScrollListener {
     // The minimum amount of items to have below your current scroll position
     // before loading more.
@@ -15,8 +25,33 @@ public abstract class EndlessScrollingRecyclerView extends RecyclerView.OnScroll
     private int currentPage = startingPageIndex;
     // The total number of items in the dataset after the last load
     private int previousTotalItemCount = 0;
-    // True if we are still waiting for the last set of data to load.
-    private boolean loading = true;
+    // How many of the requested pages didn't arrive yet, the first one is loaded from the start.
+    private int pendingPages = 1;
+    // How many pages may be requested without waiting for the previous ones.
+    private int maxQueuedPages = 1;
+    // When each of the pending pages was requested, oldest first.
+    private final ArrayDeque<Long> pendingRequestTimes = new ArrayDeque<>();
+    // How long a page usually takes to arrive, smoothed over the last pages.
+    private long pageLatencyMillis = DEFAULT_PAGE_LATENCY_MILLIS;
+    // The current scroll velocity in pixels per millisecond, smoothed, 0 when scrolling up.
+    private float scrollVelocity = 0;
+    // When the last scroll happened, for measuring the velocity.
+    private long lastScrollTime = 0;
+
+    /**
+     * What we guess a page takes before the first one was measured.
+     */
+    private static final long DEFAULT_PAGE_LATENCY_MILLIS = 1000;
+
+    /**
+     * Scroll events further apart than this are not part of the same fling.
+     */
+    private static final long MAX_SCROLL_EVENT_GAP_MILLIS = 200;
+
+    /**
+     * How much of the new measurement goes into the smoothed velocity and latency.
+     */
+    private static final float SMOOTHING_FACTOR = 0.3f;
 
 
     /**
@@ -26,18 +61,23 @@ public abstract class EndlessScrollingRecyclerView extends RecyclerView.OnScroll
 
     private RecyclerView.LayoutManager mLayoutManager;
 
+    // How many items are in one row, for converting the scrolled pixels into items.
+    private int spanCount = 1;
+
     public EndlessScrollingRecyclerView(LinearLayoutManager layoutManager) {
         this.mLayoutManager = layoutManager;
     }
 
     public EndlessScrollingRecyclerView(GridLayoutManager layoutManager) {
         this.mLayoutManager = layoutManager;
-        visibleThreshold = visibleThreshold * layoutManager.getSpanCount();
+        spanCount = layoutManager.getSpanCount();
+        visibleThreshold = visibleThreshold * spanCount;
     }
 
     public EndlessScrollingRecyclerView(StaggeredGridLayoutManager layoutManager) {
         this.mLayoutManager = layoutManager;
-        visibleThreshold = visibleThreshold * layoutManager.getSpanCount();
+        spanCount = layoutManager.getSpanCount();
+        visibleThreshold = visibleThreshold * spanCount;
     }
 
     private int getLastVisibleItem(int[] lastVisibleItemPositions) {
@@ -59,45 +99,127 @@ public abstract class EndlessScrollingRecyclerView extends RecyclerView.OnScroll
     public void onScrolled(RecyclerView view, int dx, int dy) {
         int lastVisibleItemPosition = 0;
         int totalItemCount = mLayoutManager.getItemCount();
+        long now = SystemClock.uptimeMillis();
 
-        // only do this if we haven't reached the last page.
-        if (maxPage == -1 || currentPage < maxPage) {
-
-            if (mLayoutManager instanceof StaggeredGridLayoutManager) {
-                int[] lastVisibleItemPositions = ((StaggeredGridLayoutManager) mLayoutManager).findLastVisibleItemPositions(null);
-                // get maximum element within the list
-                lastVisibleItemPosition = getLastVisibleItem(lastVisibleItemPositions);
-            } else if (mLayoutManager instanceof LinearLayoutManager) {
-                lastVisibleItemPosition = ((LinearLayoutManager) mLayoutManager).findLastVisibleItemPosition();
-            }
+        updateVelocity(dy, now);
 
-            // If the total item count is zero and the previous isn't, assume the
-            // list is invalidated and should be reset back to initial state
-            if (totalItemCount < previousTotalItemCount) {
-                this.currentPage = this.startingPageIndex;
-                this.previousTotalItemCount = totalItemCount;
-                if (totalItemCount == 0) {
-                    this.loading = true;
-                }
-            }
-            // If it’s still loading, we check to see if the dataset count has
-            // changed, if so we conclude it has finished loading and update the current page
-            // number and total item count.
-            if (loading && (totalItemCount > previousTotalItemCount)) {
-                loading = false;
-                previousTotalItemCount = totalItemCount;
+        // If the total item count is zero and the previous isn't, assume the
+        // list is invalidated and should be reset back to initial state
+        if (totalItemCount < previousTotalItemCount) {
+            this.currentPage = this.startingPageIndex;
+            this.previousTotalItemCount = totalItemCount;
+            if (totalItemCount == 0) {
+                this.pendingPages = 1;
+                this.pendingRequestTimes.clear();
             }
+        }
+        // If we are still waiting, we check to see if the dataset count has
+        // changed, if so we conclude a page has finished loading and measure how long it took.
+        if (pendingPages > 0 && (totalItemCount > previousTotalItemCount)) {
+            // more than one page could have arrived since the last scroll event.
+            int loadedPages = currentPage - startingPageIndex + 1 - pendingPages;
+            int itemsPerPage = loadedPages > 0 ? previousTotalItemCount / loadedPages : 0;
+            int arrivedPages = itemsPerPage > 0 ?
+                    Math.max(1, (totalItemCount - previousTotalItemCount) / itemsPerPage) : 1;
+            arrivedPages = Math.min(arrivedPages, pendingPages);
 
-            // If it isn’t currently loading, we check to see if we have breached
-            // the visibleThreshold and need to reload more data.
-            // If we do need to reload some more data, we execute onLoadMore to fetch the data.
-            // threshold should reflect how many total columns there are too
-            if (!loading && (lastVisibleItemPosition + visibleThreshold) > totalItemCount) {
-                currentPage++;
-                onLoadMore(currentPage, totalItemCount, view);
-                loading = true;
+            pendingPages -= arrivedPages;
+            previousTotalItemCount = totalItemCount;
+            for (int i = 0; i < arrivedPages; i++) {
+                Long requestTime = pendingRequestTimes.poll();
+                if (requestTime != null)
+                    pageLatencyMillis += (long) (SMOOTHING_FACTOR * (now - requestTime - pageLatencyMillis));
             }
         }
+
+        // only do this if we haven't reached the last page.
+        if (maxPage != -1 && currentPage >= maxPage)
+            return;
+
+        if (mLayoutManager instanceof StaggeredGridLayoutManager) {
+            int[] lastVisibleItemPositions = ((StaggeredGridLayoutManager) mLayoutManager).findLastVisibleItemPositions(null);
+            // get maximum element within the list
+            lastVisibleItemPosition = getLastVisibleItem(lastVisibleItemPositions);
+        } else if (mLayoutManager instanceof LinearLayoutManager) {
+            lastVisibleItemPosition = ((LinearLayoutManager) mLayoutManager).findLastVisibleItemPosition();
+        }
+
+        // the pages already requested will bring about as many items as the ones already loaded.
+        int loadedPages = currentPage - startingPageIndex + 1 - pendingPages;
+        int itemsPerPage = loadedPages > 0 ? totalItemCount / loadedPages : 0;
+        int expectedItemCount = totalItemCount + pendingPages * itemsPerPage;
+        int threshold = getPrefetchThreshold(view);
+
+        // If we have room for more requests, we check to see if we have breached
+        // the threshold and need to reload more data.
+        // If we do need to reload some more data, we execute onLoadMore to fetch the data.
+        // threshold should reflect how many total columns there are too
+        while (pendingPages < maxQueuedPages && (maxPage == -1 || currentPage < maxPage)
+                && (lastVisibleItemPosition + threshold) > expectedItemCount) {
+            currentPage++;
+            pendingPages++;
+            pendingRequestTimes.add(now);
+            onLoadMore(currentPage, totalItemCount, view);
+            // without knowing the page size we only ask for one page at a time.
+            if (itemsPerPage == 0)
+                break;
+            expectedItemCount += itemsPerPage;
+        }
+    }
+
+    /**
+     * Measures how fast the user is scrolling down.
+     */
+    private void updateVelocity(int dy, long now) {
+        long elapsed = now - lastScrollTime;
+        lastScrollTime = now;
+        if (dy <= 0 || elapsed > MAX_SCROLL_EVENT_GAP_MILLIS) {
+            scrollVelocity = 0;
+        } else if (elapsed > 0) {
+            float velocity = (float) dy / elapsed;
+            scrollVelocity += SMOOTHING_FACTOR * (velocity - scrollVelocity);
+        }
+    }
+
+    /**
+     * How many items before the end the next page should be requested. At least the fixed
+     * threshold, or as many items as the user will scroll past while a page is loading.
+     */
+    private int getPrefetchThreshold(RecyclerView view) {
+        View firstChild = view.getChildAt(0);
+        if (firstChild == null || firstChild.getHeight() == 0 || scrollVelocity <= 0)
+            return visibleThreshold;
+        float itemsPerMillis = scrollVelocity / firstChild.getHeight() * spanCount;
+        int itemsDuringLoad = (int) (itemsPerMillis * pageLatencyMillis);
+        return Math.max(visibleThreshold, itemsDuringLoad + visibleThreshold);
+    }
+
+    /**
+     * Tells the listener a requested page could not be loaded. All the pages after it are
+     * forgotten, the failed page is the one to be loaded again.
+     *
+     * @param page the page which failed.
+     */
+    public void onLoadFailed(int page) {
+        if (page < startingPageIndex || page > currentPage)
+            return;
+        currentPage = page;
+        // we keep waiting for the page, it is loaded again on retry.
+        pendingPages = 1;
+        pendingRequestTimes.clear();
+        pendingRequestTimes.add(SystemClock.uptimeMillis());
+    }
+
+    /**
+     * Sets how many pages may be requested ahead, without waiting for the previous ones to
+     * arrive. The default is one.
+     *
+     * @param maxQueuedPages at least one.
+     */
+    public void setMaxQueuedPages(int maxQueuedPages) {
+        if (maxQueuedPages < 1)
+            throw new IllegalArgumentException("At least one page has to be loadable.");
+        this.maxQueuedPages = maxQueuedPages;
     }
 
     /**
@@ -115,7 +237,32 @@ public abstract class EndlessScrollingRecyclerView extends RecyclerView.OnScroll
         this.currentPage = this.startingPageIndex;
         this.previousTotalItemCount = 0;
         this.maxPage = -1;
-        this.loading = true;
+        this.pendingPages = 1;
+        this.pendingRequestTimes.clear();
+    }
+
+    /**
+     * Tells the listener the items were replaced without going through the pages, like when
+     * everything loaded so far is read again at once. Nothing is pending afterwards.
+     *
+     * @param loadedPages    how many pages the items are worth.
+     * @param totalItemCount how many items there are now.
+     */
+    public void setLoadedPages(int loadedPages, int totalItemCount) {
+        this.currentPage = this.startingPageIndex + Math.max(loadedPages, 1) - 1;
+        this.previousTotalItemCount = totalItemCount;
+        this.pendingPages = 0;
+        this.pendingRequestTimes.clear();
+    }
+
+    /**
+     * Tells the listener single items were inserted or removed outside of the pages, so the
+     * changed item count is neither taken for a new page nor for a new list.
+     *
+     * @param difference how many items were inserted, negative if they were removed.
+     */
+    public void onItemCountChanged(int difference) {
+        this.previousTotalItemCount = Math.max(0, this.previousTotalItemCount + difference);
     }
 
     /**
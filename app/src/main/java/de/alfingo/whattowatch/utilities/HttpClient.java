@@ -0,0 +1,494 @@
+package de.alfingo.whattowatch.utilities;
+
+import com.google.gson.stream.JsonReader;
+
+import android.support.annotation.NonNull;
+import android.util.LruCache;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.zip.GZIPInputStream;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * The HTTP client under the MovieDB utilities. Connections are never disconnected by hand, the
+ * answers are always read until the end and closed instead, so the platform can give the socket
+ * back to its keep-alive pool. All the HTTPS connections share the same socket factory, which
+ * means the TLS sessions are resumed instead of doing a full handshake every time. The answers
+ * are requested gzipped and read through pooled byte buffers.
+ * <p>
+ * The decoded answers are kept in memory together with their validator, when the HTTP cache
+ * revalidates an answer and MovieDB says it didn't change, the JSON is not parsed again.
+ *
+ * @author Rafael
+ * @since 18.10.2026
+ */
+final class HttpClient {
+
+    @SuppressWarnings("unused")
+    private static final String TAG = HttpClient.class.getSimpleName();
+
+    /**
+     * The default timeouts, in milliseconds.
+     */
+    static final int
+            DEFAULT_CONNECT_TIMEOUT_MILLIS = 15000,
+            DEFAULT_READ_TIMEOUT_MILLIS = 20000;
+
+    /**
+     * How many idle connections are kept alive per host.
+     */
+    private static final int MAX_POOLED_CONNECTIONS = 5;
+
+    /**
+     * How much of an answer we are willing to throw away just to keep the connection alive.
+     */
+    private static final int MAX_DISCARD_BYTES = 64 * 1024;
+
+    /**
+     * How many decoded answers are kept in memory, one list page is about 20 movies.
+     */
+    private static final int MAX_DECODED_ANSWERS = 32;
+
+    /**
+     * The headers used for knowing if an answer changed.
+     */
+    private static final String
+            ETAG_HEADER = "ETag",
+            LAST_MODIFIED_HEADER = "Last-Modified",
+            ACCEPT_ENCODING_HEADER = "Accept-Encoding",
+            GZIP_ENCODING = "gzip";
+
+    /**
+     * The size of the pooled read buffers and how many of them are kept around.
+     */
+    private static final int
+            BUFFER_SIZE = 8 * 1024,
+            MAX_POOLED_BUFFERS = 4;
+
+    /**
+     * Read buffers given back after a request, so every answer doesn't allocate its own.
+     */
+    private static final ArrayDeque<byte[]> sBufferPool = new ArrayDeque<>(MAX_POOLED_BUFFERS);
+
+    /**
+     * The charset used by the MovieDB API for all the JSON answers.
+     */
+    private static final String RESPONSE_CHARSET = "UTF-8";
+
+    static {
+        // the platform pools the connections by itself, we only make sure it is allowed to.
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", String.valueOf(MAX_POOLED_CONNECTIONS));
+    }
+
+    /**
+     * Shared by all the connections so the TLS sessions are cached and resumed.
+     */
+    private final SSLSocketFactory mSslSocketFactory;
+
+    /**
+     * The last decoded answers, by URL.
+     */
+    private final LruCache<String, DecodedAnswer> mDecodedAnswers =
+            new LruCache<>(MAX_DECODED_ANSWERS);
+
+    /**
+     * The requests running right now, by URL.
+     */
+    private final HashMap<String, FutureTask<Object>> mInFlightRequests = new HashMap<>();
+
+    private volatile int mConnectTimeoutMillis;
+
+    private volatile int mReadTimeoutMillis;
+
+    /**
+     * Creates a client with the given timeouts.
+     *
+     * @param connectTimeoutMillis how long to wait for a connection, 0 waits forever.
+     * @param readTimeoutMillis    how long to wait for data on the socket, 0 waits forever.
+     */
+    HttpClient(int connectTimeoutMillis, int readTimeoutMillis) {
+        setTimeouts(connectTimeoutMillis, readTimeoutMillis);
+        mSslSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+    }
+
+    /**
+     * Changes the timeouts for all the following requests.
+     *
+     * @param connectTimeoutMillis how long to wait for a connection, 0 waits forever.
+     * @param readTimeoutMillis    how long to wait for data on the socket, 0 waits forever.
+     */
+    void setTimeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+        if (connectTimeoutMillis < 0 || readTimeoutMillis < 0)
+            throw new IllegalArgumentException("Timeouts can't be negative.");
+        mConnectTimeoutMillis = connectTimeoutMillis;
+        mReadTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * Streams the HTTP answer directly into a {@link JsonReader} and lets the handler decode it.
+     * If the answer has the same validator as the last one decoded for this URL, as it happens
+     * with a cache hit or a 304, the last decoded object is returned instead. Callers asking for
+     * a URL which is already being fetched wait for that request instead of starting their own.
+     * The decoded objects are shared between all those callers, so each of them gets its own
+     * copy made by {@link JsonResponseHandler#copy(Object)} and may modify it.
+     *
+     * @param url     The URL to fetch the HTTP response from.
+     * @param handler Decodes the JSON while it is being read from the connection.
+     * @return What the handler decoded from the response.
+     * @throws IOException Related to network and stream reading
+     */
+    @SuppressWarnings("unchecked")
+    <T> T readJson(final URL url, final JsonResponseHandler<T> handler) throws IOException {
+        final String key = url.toString();
+
+        FutureTask<Object> request;
+        boolean ownRequest = false;
+        synchronized (mInFlightRequests) {
+            request = mInFlightRequests.get(key);
+            if (request == null) {
+                request = new FutureTask<>(new Callable<Object>() {
+                    @Override
+                    public Object call() throws IOException {
+                        try {
+                            return fetchJson(key, url, handler);
+                        } catch (IOException e) {
+                            // runs on the owning thread, so this is its own interruption.
+                            if (Thread.currentThread().isInterrupted())
+                                throw new RequestCancelledException(key, e);
+                            throw e;
+                        }
+                    }
+                });
+                mInFlightRequests.put(key, request);
+                ownRequest = true;
+            }
+        }
+
+        if (ownRequest) {
+            // the request runs on the thread which asked first, the others just wait for it.
+            try {
+                request.run();
+            } finally {
+                synchronized (mInFlightRequests) {
+                    mInFlightRequests.remove(key);
+                }
+            }
+        }
+
+        try {
+            return handler.copy((T) request.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + key);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // the thread which owned the request was cancelled, that is no reason to fail here.
+            // a timeout is a real failure though, asking again would only wait twice as long.
+            if (!ownRequest && cause instanceof RequestCancelledException
+                    && !Thread.currentThread().isInterrupted())
+                return readJson(url, handler);
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Does the actual request for {@link #readJson(URL, JsonResponseHandler)}.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T fetchJson(String key, URL url, JsonResponseHandler<T> handler)
+            throws IOException {
+        HttpURLConnection connection = openConnection(url);
+
+        InputStream in;
+        try {
+            in = connection.getInputStream();
+        } catch (IOException e) {
+            // the error answer has to be consumed as well, or the socket can't be reused.
+            discard(connection.getErrorStream());
+            throw e;
+        }
+
+        String validator = getValidator(connection);
+        if (validator != null) {
+            DecodedAnswer lastAnswer = mDecodedAnswers.get(key);
+            if (lastAnswer != null && validator.equals(lastAnswer.validator)) {
+                // nothing changed since the last decode, no need to parse it all again.
+                discard(in);
+                return (T) lastAnswer.value;
+            }
+        }
+
+        InputStream body = new KeepAliveInputStream(in);
+        try {
+            // the socket is always read through a pooled buffer. we asked for gzip ourselves, so
+            // the platform leaves the decompression to us, the inflater reads from the pooled
+            // buffer too.
+            body = new PooledBufferedInputStream(body);
+            if (GZIP_ENCODING.equalsIgnoreCase(connection.getContentEncoding()))
+                body = new GZIPInputStream(body, BUFFER_SIZE);
+        } catch (IOException e) {
+            body.close();
+            throw e;
+        }
+
+        JsonReader reader = new JsonReader(new InputStreamReader(body, RESPONSE_CHARSET));
+        T answer;
+        try {
+            answer = handler.handleResponse(reader);
+        } finally {
+            reader.close();
+        }
+
+        if (validator != null && answer != null)
+            mDecodedAnswers.put(key, new DecodedAnswer(validator, answer));
+        return answer;
+    }
+
+    /**
+     * Gets the ETag of an answer, or the last modified date if there is no ETag.
+     *
+     * @return the validator or null if the server sent none.
+     */
+    private static String getValidator(HttpURLConnection connection) {
+        String validator = connection.getHeaderField(ETAG_HEADER);
+        if (validator == null)
+            validator = connection.getHeaderField(LAST_MODIFIED_HEADER);
+        return validator;
+    }
+
+    /**
+     * Opens and configures a connection, nothing is sent yet.
+     */
+    private HttpURLConnection openConnection(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(mConnectTimeoutMillis);
+        connection.setReadTimeout(mReadTimeoutMillis);
+        connection.setRequestProperty(ACCEPT_ENCODING_HEADER, GZIP_ENCODING);
+        if (connection instanceof HttpsURLConnection)
+            ((HttpsURLConnection) connection).setSSLSocketFactory(mSslSocketFactory);
+        return connection;
+    }
+
+    /**
+     * Reads what is left of a stream and closes it.
+     */
+    private static void discard(InputStream in) {
+        if (in == null)
+            return;
+        try {
+            drain(in);
+            in.close();
+        } catch (IOException ignored) {
+            // the connection is simply not reused then.
+        }
+    }
+
+    /**
+     * Reads and throws away the rest of a stream, up to {@link #MAX_DISCARD_BYTES}.
+     */
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = obtainBuffer();
+        try {
+            int discarded = 0;
+            int read;
+            while (discarded < MAX_DISCARD_BYTES && (read = in.read(buffer)) != -1)
+                discarded += read;
+        } finally {
+            recycleBuffer(buffer);
+        }
+    }
+
+    /**
+     * Takes a read buffer from the pool, or creates one if the pool is empty.
+     */
+    private static byte[] obtainBuffer() {
+        synchronized (sBufferPool) {
+            byte[] buffer = sBufferPool.poll();
+            if (buffer != null)
+                return buffer;
+        }
+        return new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Gives a read buffer back to the pool, if the pool is full it is left to the GC.
+     */
+    private static void recycleBuffer(byte[] buffer) {
+        synchronized (sBufferPool) {
+            if (sBufferPool.size() < MAX_POOLED_BUFFERS)
+                sBufferPool.push(buffer);
+        }
+    }
+
+    /**
+     * Decodes a JSON answer while it is being streamed from the server.
+     *
+     * @param <T> what is decoded from the answer.
+     */
+    interface JsonResponseHandler<T> {
+        /**
+         * Reads the whole answer from the given reader, which is closed afterwards.
+         *
+         * @param reader positioned before the first token of the answer.
+         * @return the decoded answer.
+         * @throws IOException if the stream broke or the JSON is malformed.
+         */
+        T handleResponse(JsonReader reader) throws IOException;
+
+        /**
+         * Copies a decoded answer deep enough that changing the copy never changes the answer,
+         * which is kept for the next callers of the same URL.
+         *
+         * @param answer what {@link #handleResponse(JsonReader)} decoded, possibly for another
+         *               caller.
+         * @return the copy the caller owns.
+         */
+        T copy(T answer);
+    }
+
+    /**
+     * A request failed because the thread running it was interrupted, not because of the
+     * server or the network.
+     */
+    private static class RequestCancelledException extends InterruptedIOException {
+
+        RequestCancelledException(String key, IOException cause) {
+            super("Cancelled while fetching " + key);
+            initCause(cause);
+        }
+    }
+
+    /**
+     * A decoded answer and the validator of the HTTP answer it came from.
+     */
+    private static class DecodedAnswer {
+        final String validator;
+        final Object value;
+
+        DecodedAnswer(String validator, Object value) {
+            this.validator = validator;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Reads the rest of the answer before closing, the JSON decoder usually stops right after
+     * the last token and the connection is only pooled when the whole body was consumed.
+     */
+    private static class KeepAliveInputStream extends FilterInputStream {
+
+        KeepAliveInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain(in);
+            } catch (IOException ignored) {
+                // the connection is simply not reused then.
+            } finally {
+                super.close();
+            }
+        }
+    }
+
+    /**
+     * A buffered stream reading through one of the pooled buffers, which is given back when the
+     * stream is closed. Every read goes through the buffer, so the socket is always read in
+     * chunks of {@link #BUFFER_SIZE}, the charset decoding is left to the reader on top.
+     */
+    private static class PooledBufferedInputStream extends FilterInputStream {
+
+        private byte[] mBuffer = obtainBuffer();
+        private int mPosition;
+        private int mCount;
+
+        PooledBufferedInputStream(InputStream in) {
+            super(in);
+        }
+
+        /**
+         * Fills the buffer again, returns false when the stream ended.
+         */
+        private boolean fill() throws IOException {
+            if (mBuffer == null)
+                throw new IOException("Stream closed");
+            mPosition = 0;
+            mCount = Math.max(in.read(mBuffer, 0, mBuffer.length), 0);
+            return mCount > 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (mPosition >= mCount && !fill())
+                return -1;
+            return mBuffer[mPosition++] & 0xff;
+        }
+
+        @Override
+        public int read(@NonNull byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+            if (mPosition >= mCount && !fill())
+                return -1;
+            int read = Math.min(len, mCount - mPosition);
+            System.arraycopy(mBuffer, mPosition, b, off, read);
+            mPosition += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0)
+                return 0;
+            int buffered = mCount - mPosition;
+            if (buffered > 0) {
+                int skipped = (int) Math.min(buffered, n);
+                mPosition += skipped;
+                return skipped;
+            }
+            return in.skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (mCount - mPosition) + in.available();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (mBuffer != null) {
+                    recycleBuffer(mBuffer);
+                    mBuffer = null;
+                }
+            }
+        }
+    }
+}
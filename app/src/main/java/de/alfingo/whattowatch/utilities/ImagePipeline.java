@@ -0,0 +1,115 @@
+package de.alfingo.whattowatch.utilities;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.squareup.okhttp.Cache;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.picasso.LruCache;
+import com.squareup.picasso.OkHttpDownloader;
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.StatsSnapshot;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Picasso every screen loads its images with, with explicit budgets instead of the
+ * defaults. Decoded bitmaps are kept in a memory LRU sized as a part of the heap, the
+ * downloaded images in their own disk cache, so they survive restarts without pushing the
+ * MovieDB answers out of the HTTP cache. Downloads and decodes stay on Picasso's own executor,
+ * which runs the visible posters before the prefetched ones and sizes itself to the network.
+ *
+ * @author Rafael
+ * @since 18.10.2026
+ */
+public final class ImagePipeline {
+
+    /**
+     * Which part of the heap the decoded bitmaps may take, a grid full of posters needs a few MB.
+     */
+    private static final int MEMORY_CACHE_HEAP_DIVISOR = 7;
+
+    private static final String DISK_CACHE_DIR = "images";
+
+    private static final long DISK_CACHE_SIZE_BYTES = 50 * 1024 * 1024;
+
+    /**
+     * The disk cache, for its counters. Null until installed.
+     */
+    private static volatile Cache sDiskCache;
+
+    private ImagePipeline() {
+    }
+
+    /**
+     * Makes the configured Picasso the one {@link Picasso#with(Context)} returns, must be called
+     * once when the app starts before any image is loaded.
+     *
+     * @param context any context, only the application context is kept.
+     */
+    public static synchronized void install(@NonNull Context context) {
+        if (sDiskCache != null)
+            return;
+        Context appContext = context.getApplicationContext();
+
+        Cache diskCache = new Cache(new File(appContext.getCacheDir(), DISK_CACHE_DIR),
+                DISK_CACHE_SIZE_BYTES);
+        OkHttpClient client = new OkHttpClient();
+        client.setConnectTimeout(HttpClient.DEFAULT_CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        client.setReadTimeout(HttpClient.DEFAULT_READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        client.setCache(diskCache);
+
+        int memoryCacheBytes =
+                (int) (Runtime.getRuntime().maxMemory() / MEMORY_CACHE_HEAP_DIVISOR);
+        Picasso picasso = new Picasso.Builder(appContext)
+                .memoryCache(new LruCache(memoryCacheBytes))
+                .downloader(new OkHttpDownloader(client))
+                .build();
+        Picasso.setSingletonInstance(picasso);
+        sDiskCache = diskCache;
+    }
+
+    /**
+     * How often the images came from memory, from the disk and from the network so far.
+     *
+     * @return the counters, or null if the pipeline is not installed.
+     */
+    @Nullable
+    public static Stats getStats(@NonNull Context context) {
+        Cache diskCache = sDiskCache;
+        if (diskCache == null)
+            return null;
+        return new Stats(Picasso.with(context).getSnapshot(), diskCache.getHitCount(),
+                diskCache.getNetworkCount());
+    }
+
+    /**
+     * The counters of the image caches at one moment.
+     */
+    public static final class Stats {
+
+        public final long memoryHits, memoryMisses;
+
+        public final int memorySizeBytes, memoryMaxSizeBytes;
+
+        public final int diskHits, downloads;
+
+        Stats(StatsSnapshot snapshot, int diskHits, int downloads) {
+            memoryHits = snapshot.cacheHits;
+            memoryMisses = snapshot.cacheMisses;
+            memorySizeBytes = snapshot.size;
+            memoryMaxSizeBytes = snapshot.maxSize;
+            this.diskHits = diskHits;
+            this.downloads = downloads;
+        }
+
+        @Override
+        public String toString() {
+            return "Memory: " + memoryHits + " hits, " + memoryMisses + " misses, "
+                    + memorySizeBytes / 1024 + " of " + memoryMaxSizeBytes / 1024
+                    + " KB. Disk: " + diskHits + " hits, " + downloads + " downloads.";
+        }
+    }
+}
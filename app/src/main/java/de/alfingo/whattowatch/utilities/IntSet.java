@@ -0,0 +1,145 @@
+package de.alfingo.whattowatch.utilities;
+
+import java.util.Arrays;
+
+/**
+ * A set of ints without boxing them into Integers. The values are kept in one array with open
+ * addressing, so a lookup is a hash and usually a single array read. Not thread safe.
+ *
+ * @author Rafael
+ * @since 18.10.2026
+ */
+public final class IntSet {
+
+    /**
+     * Marks a free slot, a real zero is remembered apart.
+     */
+    private static final int EMPTY = 0;
+
+    private int[] mSlots;
+
+    private int mMask;
+
+    private int mSize;
+
+    private boolean mContainsZero;
+
+    public IntSet() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize how many values the set should hold before it has to grow.
+     */
+    public IntSet(int expectedSize) {
+        // at most half full, so the probing stays short.
+        int capacity = 4;
+        while (capacity < expectedSize * 2)
+            capacity <<= 1;
+        mSlots = new int[capacity];
+        mMask = capacity - 1;
+    }
+
+    public boolean contains(int value) {
+        if (value == EMPTY)
+            return mContainsZero;
+        int slot = indexOf(value);
+        return mSlots[slot] == value;
+    }
+
+    /**
+     * @return true if the value was not in the set yet.
+     */
+    public boolean add(int value) {
+        if (value == EMPTY) {
+            if (mContainsZero)
+                return false;
+            mContainsZero = true;
+            mSize++;
+            return true;
+        }
+
+        int slot = indexOf(value);
+        if (mSlots[slot] == value)
+            return false;
+        mSlots[slot] = value;
+        mSize++;
+        if (mSize * 2 > mSlots.length)
+            grow();
+        return true;
+    }
+
+    /**
+     * @return true if the value was in the set.
+     */
+    public boolean remove(int value) {
+        if (value == EMPTY) {
+            if (!mContainsZero)
+                return false;
+            mContainsZero = false;
+            mSize--;
+            return true;
+        }
+
+        int gap = indexOf(value);
+        if (mSlots[gap] != value)
+            return false;
+
+        // the values after the removed one move back, so no lookup stops early at the gap.
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mMask;
+            int next = mSlots[slot];
+            if (next == EMPTY)
+                break;
+            int home = hash(next) & mMask;
+            boolean homeBetween = gap < slot ? home > gap && home <= slot :
+                    home > gap || home <= slot;
+            if (!homeBetween) {
+                mSlots[gap] = next;
+                gap = slot;
+            }
+        }
+        mSlots[gap] = EMPTY;
+        mSize--;
+        return true;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public void clear() {
+        Arrays.fill(mSlots, EMPTY);
+        mContainsZero = false;
+        mSize = 0;
+    }
+
+    /**
+     * Finds the slot of a value which is not zero, or the free slot where it would go.
+     */
+    private int indexOf(int value) {
+        int slot = hash(value) & mMask;
+        while (mSlots[slot] != EMPTY && mSlots[slot] != value)
+            slot = (slot + 1) & mMask;
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldSlots = mSlots;
+        mSlots = new int[oldSlots.length * 2];
+        mMask = mSlots.length - 1;
+        for (int value : oldSlots) {
+            if (value != EMPTY)
+                mSlots[indexOf(value)] = value;
+        }
+    }
+
+    /**
+     * Spreads the bits, movie IDs are close to each other and would pile up in the same slots.
+     */
+    private static int hash(int value) {
+        int hash = value * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,237 @@
+package de.alfingo.whattowatch.utilities;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import de.alfingo.whattowatch.Movie;
+
+/**
+ * A compact binary encoding for movies, their reviews and videos, used where movies are stored
+ * instead of sent to MovieDB. Every encoding starts with the {@link #VERSION} it was written
+ * with, the fields follow in a fixed order without names. Counts and lengths are var ints, so
+ * most of them take a single byte.
+ *
+ * @author Rafael
+ * @since 18.10.2026
+ */
+final class MovieBinaryCodec {
+
+    /**
+     * Must change whenever the order or the type of a field changes, an encoding with another
+     * version is not read.
+     */
+    static final int VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The most bytes a string may have, the longest reviews are a few hundred KB.
+     */
+    private static final int MAX_STRING_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * The most elements a list may have, far more than any movie or grid has.
+     */
+    private static final int MAX_COUNT = 64 * 1024;
+
+    private MovieBinaryCodec() {
+    }
+
+    static byte[] toBytes(Movie movie) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        writeMovie(new DataOutputStream(bytes), movie);
+        return bytes.toByteArray();
+    }
+
+    static Movie fromBytes(byte[] bytes) throws IOException {
+        return readMovie(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    static void writeMovie(DataOutput out, Movie movie) throws IOException {
+        writeVarInt(out, VERSION);
+        writeMovieFields(out, movie);
+    }
+
+    static Movie readMovie(DataInput in) throws IOException {
+        checkVersion(in);
+        return readMovieFields(in);
+    }
+
+    static void writeMovies(DataOutput out, List<Movie> movies) throws IOException {
+        writeVarInt(out, VERSION);
+        writeVarInt(out, movies.size());
+        for (Movie movie : movies)
+            writeMovieFields(out, movie);
+    }
+
+    static ArrayList<Movie> readMovies(DataInput in) throws IOException {
+        checkVersion(in);
+        int size = readLength(in, MAX_COUNT);
+        ArrayList<Movie> movies = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            movies.add(readMovieFields(in));
+        return movies;
+    }
+
+    private static void checkVersion(DataInput in) throws IOException {
+        int version = readVarInt(in);
+        if (version != VERSION)
+            throw new IOException("Unknown movie encoding version: " + version);
+    }
+
+    private static void writeMovieFields(DataOutput out, Movie movie) throws IOException {
+        writeVarInt(out, movie.id);
+        writeString(out, movie.title);
+        writeString(out, movie.original_title);
+        writeString(out, movie.original_language);
+        writeString(out, movie.overview);
+        writeString(out, movie.poster_path);
+        writeString(out, movie.backdrop_path);
+        out.writeBoolean(movie.release_date != null);
+        if (movie.release_date != null)
+            out.writeLong(movie.release_date.getTime());
+        if (movie.genre_ids == null) {
+            writeVarInt(out, 0);
+        } else {
+            // one more than the length, zero is null.
+            writeVarInt(out, movie.genre_ids.length + 1);
+            for (int genreId : movie.genre_ids)
+                writeVarInt(out, genreId);
+        }
+        out.writeDouble(movie.popularity);
+        writeVarInt(out, movie.vote_count);
+        out.writeFloat(movie.vote_average);
+        out.writeBoolean(movie.favorite);
+
+        if (movie.reviews == null) {
+            writeVarInt(out, 0);
+        } else {
+            writeVarInt(out, movie.reviews.size() + 1);
+            for (Movie.Review review : movie.reviews) {
+                writeString(out, review.author);
+                writeString(out, review.content);
+            }
+        }
+        if (movie.videos == null) {
+            writeVarInt(out, 0);
+        } else {
+            writeVarInt(out, movie.videos.size() + 1);
+            for (Movie.MovieVideo video : movie.videos) {
+                writeString(out, video.site);
+                writeString(out, video.name);
+                writeString(out, video.key);
+            }
+        }
+    }
+
+    private static Movie readMovieFields(DataInput in) throws IOException {
+        Movie movie = new Movie();
+        movie.id = readVarInt(in);
+        movie.title = readString(in);
+        movie.original_title = readString(in);
+        movie.original_language = readString(in);
+        movie.overview = readString(in);
+        movie.poster_path = readString(in);
+        movie.backdrop_path = readString(in);
+        if (in.readBoolean())
+            movie.release_date = new Date(in.readLong());
+        int genres = readLength(in, MAX_COUNT + 1) - 1;
+        if (genres >= 0) {
+            movie.genre_ids = new int[genres];
+            for (int i = 0; i < genres; i++)
+                movie.genre_ids[i] = readVarInt(in);
+        }
+        movie.popularity = in.readDouble();
+        movie.vote_count = readVarInt(in);
+        movie.vote_average = in.readFloat();
+        movie.favorite = in.readBoolean();
+
+        int reviews = readLength(in, MAX_COUNT + 1) - 1;
+        if (reviews >= 0) {
+            movie.reviews = new ArrayList<>(reviews);
+            for (int i = 0; i < reviews; i++) {
+                Movie.Review review = new Movie.Review();
+                review.author = readString(in);
+                review.content = readString(in);
+                movie.reviews.add(review);
+            }
+        }
+        int videos = readLength(in, MAX_COUNT + 1) - 1;
+        if (videos >= 0) {
+            movie.videos = new ArrayList<>(videos);
+            for (int i = 0; i < videos; i++) {
+                Movie.MovieVideo video = new Movie.MovieVideo();
+                video.site = readString(in);
+                video.name = readString(in);
+                video.key = readString(in);
+                movie.videos.add(video);
+            }
+        }
+        return movie;
+    }
+
+    /**
+     * Writes the UTF-8 bytes after one more than their length, zero is null. Unlike writeUTF
+     * there is no 64KB limit, some reviews are long.
+     */
+    private static void writeString(DataOutput out, String string) throws IOException {
+        if (string == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = string.getBytes(UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = readLength(in, MAX_STRING_BYTES + 1) - 1;
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Seven bits per byte, the highest bit says if another byte follows.
+     */
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed var int.");
+    }
+
+    /**
+     * A var int which can't be negative or more than the maximum, so broken data doesn't end in
+     * a huge allocation.
+     */
+    private static int readLength(DataInput in, int max) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0 || length > max)
+            throw new IOException("Length out of range: " + length);
+        return length;
+    }
+}
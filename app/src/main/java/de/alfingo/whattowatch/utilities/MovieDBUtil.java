@@ -2,21 +2,29 @@ package de.alfingo.whattowatch.utilities;
 
 import android.content.Context;
 import android.net.Uri;
+import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
-import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import de.alfingo.whattowatch.Movie;
 import de.alfingo.whattowatch.R;
@@ -50,6 +58,7 @@ public abstract class MovieDBUtil {
             PAGE_PARAM = "page",
             REGION_PARAM = "region",
             LANGUAGE_PARAM = "language",
+            APPEND_PARAM = "append_to_response",
             YOUTUBE_VIDEO_PARAM = "v";
     /**
      * The paths for different queries
@@ -66,11 +75,104 @@ public abstract class MovieDBUtil {
             YOUTUBE_STD_QUALITY_PATH = "mqdefault.jpg",
             YOUTUBE_WATCH_PATH = "watch";
 
+    /**
+     * The widths in pixels MovieDB has the posters and backdrops in, smallest first. See
+     * {@link #getPosterSize(int)} and {@link #getBackdropSize(int)}.
+     */
+    private static final int[]
+            POSTER_WIDTHS = {92, 154, 185, 342, 500, 780},
+            BACKDROP_WIDTHS = {300, 780, 1280};
+
+    /**
+     * The different ways of getting the movie details, see
+     * {@link #getMovieDetails(String, int)}.
+     * <ul>
+     * <li>{@link #DETAILS_SEQUENTIAL} movie, reviews and videos one after the other.</li>
+     * <li>{@link #DETAILS_CONCURRENT} the three requests at the same time.</li>
+     * <li>{@link #DETAILS_APPEND_TO_RESPONSE} one request with everything appended.</li>
+     * </ul>
+     */
+    public static final int
+            DETAILS_SEQUENTIAL = 0,
+            DETAILS_CONCURRENT = 1,
+            DETAILS_APPEND_TO_RESPONSE = 2;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({DETAILS_SEQUENTIAL, DETAILS_CONCURRENT, DETAILS_APPEND_TO_RESPONSE})
+    public @interface DetailsStrategy {
+    }
+
+    /**
+     * Runs the reviews and videos requests when the details are fetched concurrently.
+     */
+    private static final ExecutorService sDetailsExecutor = Executors.newFixedThreadPool(2);
+
+    /**
+     * How many pages are requested at the same time by {@link #getMoviePages}.
+     */
+    public static final int MAX_PARALLEL_PAGES = 4;
+
+    /**
+     * Runs the page requests of {@link #getMoviePages}.
+     */
+    private static final ExecutorService sPagesExecutor =
+            Executors.newFixedThreadPool(MAX_PARALLEL_PAGES);
+
+    /**
+     * Gets the pages loaded by {@link #getMoviePages}, one by one.
+     */
+    public interface PageListener {
+        /**
+         * Called on the loading thread for every page, in page order.
+         *
+         * @param page   the page number.
+         * @param movies the movies in this page.
+         */
+        void onPageLoaded(int page, ArrayList<Movie> movies);
+    }
+
+    /**
+     * A page of movies, as answered by MovieDB.
+     */
+    public static class MoviesPage {
+        /**
+         * Which page this is.
+         */
+        public final int page;
+        /**
+         * How many pages there are for the sorting, 0 if MovieDB didn't tell.
+         */
+        public final int totalPages;
+        /**
+         * The movies inside the page.
+         */
+        public final ArrayList<Movie> movies;
+
+        public MoviesPage(int page, int totalPages, ArrayList<Movie> movies) {
+            this.page = page;
+            this.totalPages = totalPages;
+            this.movies = movies;
+        }
+    }
+
+    /**
+     * Where and how big the HTTP cache for the MovieDB answers is.
+     */
+    private static final String HTTP_CACHE_DIR = "moviedb-http";
+    private static final long HTTP_CACHE_SIZE_BYTES = 10 * 1024 * 1024;
+
+    /**
+     * Where the movie details are kept between visits, null until it is installed.
+     */
+    private static final String DETAILS_CACHE_DIR = "moviedb-details";
+    private static volatile DetailsCache sDetailsCache;
+
     /**
      * Answer constants from the MovieDB JSON
      */
     final private static String
             RESULTS_ANSWER = "results",
+            PAGE_ANSWER = "page",
             MAX_PAGES_ANSWER = "total_pages";
 
     /**
@@ -84,9 +186,28 @@ public abstract class MovieDBUtil {
      * @return An array with all the Movie Objects returned.
      * @throws IOException        If something with the connection is not right.
      * @throws JsonParseException If the JSON Object was malformed, or the site is down.
+     * @see #getMoviesPage(Context, Integer, int)
      */
     public static ArrayList<Movie> getAllMovies(@NonNull Context context, Integer sorting, int page)
             throws JsonParseException, IOException {
+        MoviesPage moviesPage = getMoviesPage(context, sorting, page);
+        return moviesPage.movies.isEmpty() ? null : moviesPage.movies;
+    }
+
+    /**
+     * Same as {@link #getAllMovies(Context, Integer, int)}, but also tells how many pages there
+     * are for this sorting.
+     *
+     * @param context For getting our sorting methods.
+     * @param sorting Which sorting should be used, the available ones are listed in the MovieDB
+     *                site, by default it will sort by popularity.
+     * @param page    Which page should be returned, by default it will return page one.
+     * @return The page with all the Movie Objects returned, the list is empty if there are none.
+     * @throws IOException        If something with the connection is not right.
+     * @throws JsonParseException If the JSON Object was malformed, or the site is down.
+     */
+    public static MoviesPage getMoviesPage(@NonNull Context context, Integer sorting, int page)
+            throws JsonParseException, IOException {
         int topRatedConstant = context.getResources().getInteger(R.integer.top_rated_index);
         int pageParamValue = page > 1 ? page : 1;
         // should extend to a switch case when more sorting methods are available
@@ -94,61 +215,242 @@ public abstract class MovieDBUtil {
         String[][] queries = {{PAGE_PARAM, String.valueOf(pageParamValue)}};
         URL builtURL = buildUrl(queries, MOVIE_PATH, sortPath);
 
-        String movieDBAnswer = NetworkUtils.getResponseFromHttpUrl(builtURL);
-        JsonObject jsonAnswer = new JsonParser().parse(movieDBAnswer).getAsJsonObject();
-        JsonArray jsonArray = jsonAnswer.getAsJsonArray(RESULTS_ANSWER);
-
-        Gson gsonInstance = new Gson();
+        // the movies are decoded one by one while the answer is still being downloaded.
+        return NetworkUtils.readJsonFromHttpUrl(builtURL,
+                new HttpClient.JsonResponseHandler<MoviesPage>() {
+                    @Override
+                    public MoviesPage handleResponse(JsonReader reader) throws IOException {
+                        return readMoviesPage(reader);
+                    }
+
+                    @Override
+                    public MoviesPage copy(MoviesPage answer) {
+                        ArrayList<Movie> movies = new ArrayList<>(answer.movies.size());
+                        for (Movie movie : answer.movies)
+                            movies.add(copyMovie(movie));
+                        return new MoviesPage(answer.page, answer.totalPages, movies);
+                    }
+                });
+    }
 
-        ArrayList<Movie> moviesList = new ArrayList<>();
+    /**
+     * Gets a range of pages at once, used for restoring the grid. The pages are requested
+     * concurrently, at most {@link #MAX_PARALLEL_PAGES} at a time, and merged in page order.
+     *
+     * @param context   For getting our sorting methods.
+     * @param sorting   Which sorting should be used, see {@link #getAllMovies(Context, Integer, int)}
+     * @param firstPage The first page to get.
+     * @param lastPage  The last page to get, inclusive.
+     * @param listener  Gets every page in order as soon as it and all the pages before it arrived,
+     *                  so the first page can be shown while the others are still loading.
+     * @return All the movies of all the pages in order, as if they were one page. The page
+     * number is the one of the last page.
+     * @throws IOException        If something with the connection is not right.
+     * @throws JsonParseException If the JSON Object was malformed, or the site is down.
+     */
+    public static MoviesPage getMoviePages(@NonNull final Context context,
+                                           final Integer sorting, int firstPage,
+                                           int lastPage, @Nullable PageListener listener)
+            throws JsonParseException, IOException {
+        ArrayList<Future<MoviesPage>> pageFutures = new ArrayList<>();
+        for (int page = firstPage; page <= lastPage; page++) {
+            final int pageToLoad = page;
+            pageFutures.add(sPagesExecutor.submit(new Callable<MoviesPage>() {
+                @Override
+                public MoviesPage call() throws IOException {
+                    return getMoviesPage(context, sorting, pageToLoad);
+                }
+            }));
+        }
 
-        // iterates over the JSON Array and creates every Movie Object inside it.
-        for (int i = 0; i < jsonArray.size(); i++) {
-            JsonElement movieJson = jsonArray.get(i);
-            Movie movie = gsonInstance.fromJson(movieJson, Movie.class);
-            moviesList.add(movie);
+        ArrayList<Movie> movies = new ArrayList<>();
+        int totalPages = 0;
+        try {
+            for (int i = 0; i < pageFutures.size(); i++) {
+                MoviesPage moviesPage = awaitDetail(pageFutures.get(i));
+                totalPages = moviesPage.totalPages;
+                if (moviesPage.movies.isEmpty())
+                    continue;
+                if (listener != null)
+                    listener.onPageLoaded(firstPage + i, moviesPage.movies);
+                movies.addAll(moviesPage.movies);
+            }
+        } finally {
+            // if something failed nobody needs the rest anymore.
+            for (Future<MoviesPage> pageFuture : pageFutures)
+                pageFuture.cancel(true);
         }
 
-        return moviesList.isEmpty() ? null : moviesList;
+        return new MoviesPage(lastPage, totalPages, movies);
     }
 
     /**
-     * Gets all the movie details, reviews and videos included.
+     * Gets all the movie details, reviews and videos included. If the movie was seen before it
+     * comes from the details cache without any request, when the cached movie is too old it is
+     * still returned and refreshed in the background. Otherwise it is a single request.
      *
      * @return a movie object with all the information needed on the details page.
      * @throws IOException if something didn't go quite as planned, duh!
+     * @see #getMovieDetails(String, int)
+     * @see #installDetailsCache(Context)
      */
     public static Movie getMovieDetails(String movieID) throws IOException {
-        Gson gson = new Gson();
+        DetailsCache detailsCache = sDetailsCache;
+        if (detailsCache == null)
+            return getMovieDetails(movieID, DETAILS_APPEND_TO_RESPONSE);
+
+        DetailsCache.Entry entry = detailsCache.get(movieID);
+        if (entry != null) {
+            if (!entry.fresh)
+                detailsCache.refresh(movieID);
+            return entry.movie;
+        }
 
-        // getting the movie object
-        Movie movie = getMovie(movieID);
+        Movie movie = getMovieDetails(movieID, DETAILS_APPEND_TO_RESPONSE);
+        detailsCache.put(movieID, movie);
+        return movie;
+    }
 
-        // now to get the reviews
-        URL reviewsUrl = buildUrl(null, MOVIE_PATH, movieID, REVIEWS_PATH);
-        String reviewsAnswer = NetworkUtils.getResponseFromHttpUrl(reviewsUrl);
-        JsonArray reviewsArray = new JsonParser()
-                .parse(reviewsAnswer)
-                .getAsJsonObject()
-                .getAsJsonArray(RESULTS_ANSWER);
-        movie.reviews = new ArrayList<>();
-        for (int i = 0; i < reviewsArray.size(); i++) {
-            movie.reviews.add(gson.fromJson(reviewsArray.get(i), Movie.Review.class));
+    /**
+     * Gets all the movie details, reviews and videos included.
+     *
+     * @param movieID  the movie ID for the movie which should be returned
+     * @param strategy how the movie, the reviews and the videos should be requested.
+     * @return a movie object with all the information needed on the details page.
+     * @throws IOException if something didn't go quite as planned, duh!
+     */
+    public static Movie getMovieDetails(final String movieID, @DetailsStrategy int strategy)
+            throws IOException {
+        switch (strategy) {
+            case DETAILS_APPEND_TO_RESPONSE:
+                // everything comes inside the movie answer, the codec knows how to read it.
+                String[][] queries = {{APPEND_PARAM, REVIEWS_PATH + "," + VIDEOS_PATH}};
+                URL detailsUrl = buildUrl(queries, MOVIE_PATH, movieID);
+                Movie appendedMovie = NetworkUtils.readJsonFromHttpUrl(detailsUrl,
+                        new HttpClient.JsonResponseHandler<Movie>() {
+                            @Override
+                            public Movie handleResponse(JsonReader reader) throws IOException {
+                                return MovieJsonCodec.GSON.fromJson(reader, Movie.class);
+                            }
+
+                            @Override
+                            public Movie copy(Movie answer) {
+                                return copyMovie(answer);
+                            }
+                        });
+                if (appendedMovie.reviews == null)
+                    appendedMovie.reviews = new ArrayList<>();
+                if (appendedMovie.videos == null)
+                    appendedMovie.videos = new ArrayList<>();
+                return appendedMovie;
+
+            case DETAILS_CONCURRENT:
+                // reviews and videos are requested in the background while we get the movie.
+                Future<List<Movie.Review>> reviewsFuture = sDetailsExecutor.submit(
+                        new Callable<List<Movie.Review>>() {
+                            @Override
+                            public List<Movie.Review> call() throws IOException {
+                                return getReviews(movieID);
+                            }
+                        });
+                Future<List<Movie.MovieVideo>> videosFuture = sDetailsExecutor.submit(
+                        new Callable<List<Movie.MovieVideo>>() {
+                            @Override
+                            public List<Movie.MovieVideo> call() throws IOException {
+                                return getVideos(movieID);
+                            }
+                        });
+                try {
+                    Movie concurrentMovie = getMovie(movieID);
+                    concurrentMovie.reviews = awaitDetail(reviewsFuture);
+                    concurrentMovie.videos = awaitDetail(videosFuture);
+                    return concurrentMovie;
+                } finally {
+                    // does nothing if they are already done, otherwise no one is waiting anymore.
+                    reviewsFuture.cancel(true);
+                    videosFuture.cancel(true);
+                }
+
+            case DETAILS_SEQUENTIAL:
+                Movie movie = getMovie(movieID);
+                movie.reviews = getReviews(movieID);
+                movie.videos = getVideos(movieID);
+                return movie;
+
+            default:
+                throw new UnsupportedOperationException("Unknown details strategy: " + strategy);
         }
+    }
 
-        // and to get the videos
+    /**
+     * Gets only the reviews for a movie.
+     *
+     * @param movieID the movie ID for the reviews.
+     * @return all the reviews in the first page.
+     * @throws IOException if the connection failed.
+     */
+    private static List<Movie.Review> getReviews(String movieID) throws IOException {
+        URL reviewsUrl = buildUrl(null, MOVIE_PATH, movieID, REVIEWS_PATH);
+        return NetworkUtils.readJsonFromHttpUrl(reviewsUrl,
+                new HttpClient.JsonResponseHandler<List<Movie.Review>>() {
+                    @Override
+                    public List<Movie.Review> handleResponse(JsonReader reader)
+                            throws IOException {
+                        return readResults(reader, Movie.Review.class);
+                    }
+
+                    @Override
+                    public List<Movie.Review> copy(List<Movie.Review> answer) {
+                        return copyReviews(answer);
+                    }
+                });
+    }
+
+    /**
+     * Gets only the videos for a movie.
+     *
+     * @param movieID the movie ID for the videos.
+     * @return all the videos in the first page.
+     * @throws IOException if the connection failed.
+     */
+    private static List<Movie.MovieVideo> getVideos(String movieID) throws IOException {
         URL videosUrl = buildUrl(null, MOVIE_PATH, movieID, VIDEOS_PATH);
-        String videosAnswer = NetworkUtils.getResponseFromHttpUrl(videosUrl);
-        JsonArray videosArray = new JsonParser()
-                .parse(videosAnswer)
-                .getAsJsonObject()
-                .getAsJsonArray(RESULTS_ANSWER);
-        movie.videos = new ArrayList<>();
-        for (int i = 0; i < videosArray.size(); i++) {
-            movie.videos.add(gson.fromJson(videosArray.get(i), Movie.MovieVideo.class));
-        }
+        return NetworkUtils.readJsonFromHttpUrl(videosUrl,
+                new HttpClient.JsonResponseHandler<List<Movie.MovieVideo>>() {
+                    @Override
+                    public List<Movie.MovieVideo> handleResponse(JsonReader reader)
+                            throws IOException {
+                        return readResults(reader, Movie.MovieVideo.class);
+                    }
+
+                    @Override
+                    public List<Movie.MovieVideo> copy(List<Movie.MovieVideo> answer) {
+                        return copyVideos(answer);
+                    }
+                });
+    }
 
-        return movie;
+    /**
+     * Waits for a request running in the background, rethrowing what went wrong in it.
+     *
+     * @param future the request to wait for.
+     * @return the result of the request.
+     * @throws IOException if the request failed or the waiting was interrupted.
+     */
+    private static <T> T awaitDetail(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the movie details.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
     }
 
     /**
@@ -159,12 +461,186 @@ public abstract class MovieDBUtil {
      * @throws IOException could be said, that something went wrong.
      */
     public static Movie getMovie(String movieID) throws IOException {
-        Gson gson = new Gson();
-
         URL movieUrl = buildUrl(null, MOVIE_PATH, movieID);
-        String movieDBAnswer = NetworkUtils.getResponseFromHttpUrl(movieUrl);
-        JsonObject jsonAnswer = new JsonParser().parse(movieDBAnswer).getAsJsonObject();
-        return gson.fromJson(jsonAnswer, Movie.class);
+        return NetworkUtils.readJsonFromHttpUrl(movieUrl,
+                new HttpClient.JsonResponseHandler<Movie>() {
+                    @Override
+                    public Movie handleResponse(JsonReader reader) throws IOException {
+                        return MovieJsonCodec.GSON.fromJson(reader, Movie.class);
+                    }
+
+                    @Override
+                    public Movie copy(Movie answer) {
+                        return copyMovie(answer);
+                    }
+                });
+    }
+
+    /**
+     * Copies a movie with its genres, reviews and videos, for the callers which get the same
+     * decoded answer. Strings can not change, so they are shared.
+     */
+    private static Movie copyMovie(Movie movie) {
+        Movie copy = new Movie();
+        copy.poster_path = movie.poster_path;
+        copy.overview = movie.overview;
+        copy.release_date = movie.release_date == null ? null :
+                new Date(movie.release_date.getTime());
+        copy.genre_ids = movie.genre_ids == null ? null : movie.genre_ids.clone();
+        copy.id = movie.id;
+        copy.original_title = movie.original_title;
+        copy.original_language = movie.original_language;
+        copy.title = movie.title;
+        copy.backdrop_path = movie.backdrop_path;
+        copy.popularity = movie.popularity;
+        copy.vote_count = movie.vote_count;
+        copy.vote_average = movie.vote_average;
+        copy.reviews = movie.reviews == null ? null : copyReviews(movie.reviews);
+        copy.videos = movie.videos == null ? null : copyVideos(movie.videos);
+        copy.favorite = movie.favorite;
+        return copy;
+    }
+
+    private static List<Movie.Review> copyReviews(List<Movie.Review> reviews) {
+        ArrayList<Movie.Review> copies = new ArrayList<>(reviews.size());
+        for (Movie.Review review : reviews) {
+            Movie.Review copy = new Movie.Review();
+            copy.author = review.author;
+            copy.content = review.content;
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    private static List<Movie.MovieVideo> copyVideos(List<Movie.MovieVideo> videos) {
+        ArrayList<Movie.MovieVideo> copies = new ArrayList<>(videos.size());
+        for (Movie.MovieVideo video : videos) {
+            Movie.MovieVideo copy = new Movie.MovieVideo();
+            copy.site = video.site;
+            copy.name = video.name;
+            copy.key = video.key;
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    /**
+     * Streams a page of movies, the movies are decoded as soon as they are read.
+     *
+     * @param reader the reader positioned at the start of the answer.
+     * @return the decoded page.
+     * @throws IOException if the stream broke or the JSON is malformed.
+     */
+    private static MoviesPage readMoviesPage(JsonReader reader) throws IOException {
+        int page = 0;
+        int totalPages = 0;
+        ArrayList<Movie> movies = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case PAGE_ANSWER:
+                    page = reader.nextInt();
+                    break;
+                case MAX_PAGES_ANSWER:
+                    totalPages = reader.nextInt();
+                    break;
+                case RESULTS_ANSWER:
+                    reader.beginArray();
+                    while (reader.hasNext())
+                        movies.add(MovieJsonCodec.GSON.fromJson(reader, Movie.class));
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new MoviesPage(page, totalPages, movies);
+    }
+
+    /**
+     * Streams the "results" array of a MovieDB answer, every element is decoded as soon as it is
+     * read and all the other fields of the answer are skipped.
+     *
+     * @param reader the reader positioned at the start of the answer.
+     * @param type   the class of the elements inside the array.
+     * @return all the decoded elements, empty if the answer had no results.
+     * @throws IOException if the stream broke or the JSON is malformed.
+     */
+    private static <T> ArrayList<T> readResults(JsonReader reader, Class<T> type)
+            throws IOException {
+        ArrayList<T> results = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (RESULTS_ANSWER.equals(reader.nextName())) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    T element = MovieJsonCodec.GSON.fromJson(reader, type);
+                    results.add(element);
+                }
+                reader.endArray();
+            } else
+                reader.skipValue();
+        }
+        reader.endObject();
+
+        return results;
+    }
+
+    /**
+     * Sets the timeouts for all the requests to MovieDB.
+     *
+     * @param connectTimeoutMillis how long to wait for a connection, 0 waits forever.
+     * @param readTimeoutMillis    how long to wait for data on the socket, 0 waits forever.
+     */
+    public static void setTimeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+        NetworkUtils.setTimeouts(connectTimeoutMillis, readTimeoutMillis);
+    }
+
+    /**
+     * Installs the disk cache for all the MovieDB answers, should be called once when the app
+     * starts. Without it every request goes to the network.
+     *
+     * @param context for getting the cache directory.
+     */
+    public static void installHttpCache(@NonNull Context context) {
+        File cacheDir = new File(context.getCacheDir(), HTTP_CACHE_DIR);
+        try {
+            NetworkUtils.installHttpCache(cacheDir, HTTP_CACHE_SIZE_BYTES);
+        } catch (IOException e) {
+            Log.w(TAG, "HTTP cache could not be installed.", e);
+        }
+    }
+
+    /**
+     * Installs the disk cache for the movie details, should be called once when the app starts.
+     *
+     * @param context for getting the cache directory.
+     */
+    public static void installDetailsCache(@NonNull Context context) {
+        if (sDetailsCache == null)
+            sDetailsCache = new DetailsCache(new File(context.getCacheDir(), DETAILS_CACHE_DIR));
+    }
+
+    /**
+     * Sets how long the cached details are used before they are refreshed, a day by default.
+     *
+     * @param ttlMillis the time to live in milliseconds.
+     */
+    public static void setDetailsCacheTtl(long ttlMillis) {
+        DetailsCache detailsCache = sDetailsCache;
+        if (detailsCache != null)
+            detailsCache.setTtl(ttlMillis);
+    }
+
+    /**
+     * Flushes the HTTP cache, so the answers are there the next time the app starts.
+     */
+    public static void flushHttpCache() {
+        NetworkUtils.flushHttpCache();
     }
 
     /**
@@ -181,6 +657,35 @@ public abstract class MovieDBUtil {
                 .appendEncodedPath(picturePath).build();
     }
 
+    /**
+     * The smallest poster size which is at least as wide as the view, so no bigger image than
+     * needed is downloaded and decoded. Wider views get the largest size, the original posters
+     * are a few MB.
+     *
+     * @param widthPixels how wide the poster is shown, in real pixels.
+     * @return the size, to be used in {@link #getPictureUri(String, String)}.
+     */
+    public static String getPosterSize(int widthPixels) {
+        for (int width : POSTER_WIDTHS)
+            if (width >= widthPixels)
+                return "w" + width;
+        return "w" + POSTER_WIDTHS[POSTER_WIDTHS.length - 1];
+    }
+
+    /**
+     * The smallest backdrop size which is at least as wide as the view, the original only for
+     * views wider than all the other sizes.
+     *
+     * @param widthPixels how wide the backdrop is shown, in real pixels.
+     * @return the size, to be used in {@link #getPictureUri(String, String)}.
+     */
+    public static String getBackdropSize(int widthPixels) {
+        for (int width : BACKDROP_WIDTHS)
+            if (width >= widthPixels)
+                return "w" + width;
+        return IMAGE_SIZE_ORIGINAL_PATH;
+    }
+
     /**
      * This method gets from the website in question the Uri for the thumbnail image for a video.
      *
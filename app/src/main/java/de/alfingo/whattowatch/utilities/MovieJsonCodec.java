@@ -0,0 +1,388 @@
+package de.alfingo.whattowatch.utilities;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import de.alfingo.whattowatch.Movie;
+
+/**
+ * The one Gson instance used for every MovieDB answer. All the POJOs have their own hand written
+ * adapter registered, so no reflection is needed when decoding and nothing has to be warmed up
+ * on the first request. Reviews and videos appended to a movie answer are decoded as well.
+ *
+ * @author Rafael
+ * @since 18.10.2026
+ */
+final class MovieJsonCodec {
+
+    /**
+     * The adapters for every POJO, they hold no state so one of each is enough.
+     */
+    private static final TypeAdapter<Movie.Review> REVIEW_ADAPTER = new ReviewAdapter();
+    private static final TypeAdapter<Movie.MovieVideo> VIDEO_ADAPTER = new MovieVideoAdapter();
+    private static final TypeAdapter<Movie> MOVIE_ADAPTER = new MovieAdapter();
+
+    /**
+     * The shared, thread safe, Gson instance.
+     */
+    static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Movie.class, MOVIE_ADAPTER)
+            .registerTypeAdapter(Movie.Review.class, REVIEW_ADAPTER)
+            .registerTypeAdapter(Movie.MovieVideo.class, VIDEO_ADAPTER)
+            .create();
+
+    /**
+     * The names of the fields inside the MovieDB JSON answers.
+     */
+    private static final String
+            POSTER_PATH = "poster_path",
+            OVERVIEW = "overview",
+            RELEASE_DATE = "release_date",
+            GENRE_IDS = "genre_ids",
+            ID = "id",
+            ORIGINAL_TITLE = "original_title",
+            ORIGINAL_LANGUAGE = "original_language",
+            TITLE = "title",
+            BACKDROP_PATH = "backdrop_path",
+            POPULARITY = "popularity",
+            VOTE_COUNT = "vote_count",
+            VOTE_AVERAGE = "vote_average",
+            REVIEWS = "reviews",
+            VIDEOS = "videos",
+            RESULTS = "results",
+            AUTHOR = "author",
+            CONTENT = "content",
+            SITE = "site",
+            NAME = "name",
+            KEY = "key";
+
+    /**
+     * Every thread decoding dates gets its own calendar, so no formatter has to be set up for
+     * every single movie.
+     */
+    private static final ThreadLocal<Calendar> sCalendar = new ThreadLocal<Calendar>() {
+        @Override
+        protected Calendar initialValue() {
+            return Calendar.getInstance();
+        }
+    };
+
+    private MovieJsonCodec() {
+    }
+
+    /**
+     * Reads a string which could also be null in the JSON.
+     */
+    private static String nextNullableString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * Reads the results of an answer appended to another one, as in "reviews": {"results": [...]}
+     */
+    private static <T> List<T> readAppendedResults(JsonReader reader, TypeAdapter<T> adapter)
+            throws IOException {
+        List<T> results = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (RESULTS.equals(reader.nextName())) {
+                reader.beginArray();
+                while (reader.hasNext())
+                    results.add(adapter.read(reader));
+                reader.endArray();
+            } else
+                reader.skipValue();
+        }
+        reader.endObject();
+        return results;
+    }
+
+    /**
+     * Writes a list the same way as MovieDB appends it to a movie.
+     */
+    private static <T> void writeAppendedResults(JsonWriter writer, String name, List<T> results,
+                                                 TypeAdapter<T> adapter) throws IOException {
+        if (results == null)
+            return;
+        writer.name(name).beginObject();
+        writer.name(RESULTS).beginArray();
+        for (T result : results)
+            adapter.write(writer, result);
+        writer.endArray();
+        writer.endObject();
+    }
+
+    /**
+     * Parses the MovieDB "yyyy-MM-dd" dates by hand, empty dates are returned as null.
+     */
+    static Date parseDate(String date) {
+        if (date == null || date.isEmpty())
+            return null;
+        if (date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-')
+            throw new JsonSyntaxException("Unexpected date: " + date);
+        try {
+            int year = Integer.parseInt(date.substring(0, 4));
+            int month = Integer.parseInt(date.substring(5, 7));
+            int day = Integer.parseInt(date.substring(8, 10));
+            Calendar calendar = sCalendar.get();
+            calendar.clear();
+            calendar.set(year, month - 1, day);
+            return calendar.getTime();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException("Unexpected date: " + date, e);
+        }
+    }
+
+    /**
+     * Formats a date the same way MovieDB does, "yyyy-MM-dd".
+     */
+    static String formatDate(Date date) {
+        if (date == null)
+            return null;
+        Calendar calendar = sCalendar.get();
+        calendar.setTime(date);
+        int year = calendar.get(Calendar.YEAR);
+        int month = calendar.get(Calendar.MONTH) + 1;
+        int day = calendar.get(Calendar.DAY_OF_MONTH);
+        StringBuilder builder = new StringBuilder(10);
+        builder.append(year).append('-');
+        if (month < 10)
+            builder.append('0');
+        builder.append(month).append('-');
+        if (day < 10)
+            builder.append('0');
+        builder.append(day);
+        return builder.toString();
+    }
+
+    /**
+     * Decodes and encodes the Movie POJO, fields not known are skipped.
+     */
+    private static class MovieAdapter extends TypeAdapter<Movie> {
+
+        @Override
+        public void write(JsonWriter out, Movie movie) throws IOException {
+            if (movie == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name(POSTER_PATH).value(movie.poster_path);
+            out.name(OVERVIEW).value(movie.overview);
+            out.name(RELEASE_DATE).value(formatDate(movie.release_date));
+            if (movie.genre_ids != null) {
+                out.name(GENRE_IDS).beginArray();
+                for (int genreId : movie.genre_ids)
+                    out.value(genreId);
+                out.endArray();
+            }
+            out.name(ID).value(movie.id);
+            out.name(ORIGINAL_TITLE).value(movie.original_title);
+            out.name(ORIGINAL_LANGUAGE).value(movie.original_language);
+            out.name(TITLE).value(movie.title);
+            out.name(BACKDROP_PATH).value(movie.backdrop_path);
+            out.name(POPULARITY).value(movie.popularity);
+            out.name(VOTE_COUNT).value(movie.vote_count);
+            // boxed so the float is not widened into a long double representation.
+            out.name(VOTE_AVERAGE).value(Float.valueOf(movie.vote_average));
+            writeAppendedResults(out, REVIEWS, movie.reviews, REVIEW_ADAPTER);
+            writeAppendedResults(out, VIDEOS, movie.videos, VIDEO_ADAPTER);
+            out.endObject();
+        }
+
+        @Override
+        public Movie read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            Movie movie = new Movie();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                // null values are left as the java defaults.
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case POSTER_PATH:
+                        movie.poster_path = in.nextString();
+                        break;
+                    case OVERVIEW:
+                        movie.overview = in.nextString();
+                        break;
+                    case RELEASE_DATE:
+                        movie.release_date = parseDate(in.nextString());
+                        break;
+                    case GENRE_IDS:
+                        movie.genre_ids = readIntArray(in);
+                        break;
+                    case ID:
+                        movie.id = in.nextInt();
+                        break;
+                    case ORIGINAL_TITLE:
+                        movie.original_title = in.nextString();
+                        break;
+                    case ORIGINAL_LANGUAGE:
+                        movie.original_language = in.nextString();
+                        break;
+                    case TITLE:
+                        movie.title = in.nextString();
+                        break;
+                    case BACKDROP_PATH:
+                        movie.backdrop_path = in.nextString();
+                        break;
+                    case POPULARITY:
+                        movie.popularity = in.nextDouble();
+                        break;
+                    case VOTE_COUNT:
+                        movie.vote_count = in.nextInt();
+                        break;
+                    case VOTE_AVERAGE:
+                        movie.vote_average = (float) in.nextDouble();
+                        break;
+                    // only present when appended to the answer, see append_to_response.
+                    case REVIEWS:
+                        movie.reviews = readAppendedResults(in, REVIEW_ADAPTER);
+                        break;
+                    case VIDEOS:
+                        movie.videos = readAppendedResults(in, VIDEO_ADAPTER);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return movie;
+        }
+
+        /**
+         * Reads an array of ints without boxing every value.
+         */
+        private static int[] readIntArray(JsonReader in) throws IOException {
+            int[] values = new int[8];
+            int size = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (size == values.length) {
+                    int[] grown = new int[size * 2];
+                    System.arraycopy(values, 0, grown, 0, size);
+                    values = grown;
+                }
+                values[size++] = in.nextInt();
+            }
+            in.endArray();
+
+            int[] result = new int[size];
+            System.arraycopy(values, 0, result, 0, size);
+            return result;
+        }
+    }
+
+    /**
+     * Decodes and encodes the Review POJO.
+     */
+    private static class ReviewAdapter extends TypeAdapter<Movie.Review> {
+
+        @Override
+        public void write(JsonWriter out, Movie.Review review) throws IOException {
+            if (review == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name(AUTHOR).value(review.author);
+            out.name(CONTENT).value(review.content);
+            out.endObject();
+        }
+
+        @Override
+        public Movie.Review read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            Movie.Review review = new Movie.Review();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case AUTHOR:
+                        review.author = nextNullableString(in);
+                        break;
+                    case CONTENT:
+                        review.content = nextNullableString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return review;
+        }
+    }
+
+    /**
+     * Decodes and encodes the MovieVideo POJO.
+     */
+    private static class MovieVideoAdapter extends TypeAdapter<Movie.MovieVideo> {
+
+        @Override
+        public void write(JsonWriter out, Movie.MovieVideo video) throws IOException {
+            if (video == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name(SITE).value(video.site);
+            out.name(NAME).value(video.name);
+            out.name(KEY).value(video.key);
+            out.endObject();
+        }
+
+        @Override
+        public Movie.MovieVideo read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            Movie.MovieVideo video = new Movie.MovieVideo();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case SITE:
+                        video.site = nextNullableString(in);
+                        break;
+                    case NAME:
+                        video.name = nextNullableString(in);
+                        break;
+                    case KEY:
+                        video.key = nextNullableString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return video;
+        }
+    }
+}
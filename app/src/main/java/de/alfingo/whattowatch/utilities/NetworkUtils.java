@@ -15,11 +15,11 @@
  */
 package de.alfingo.whattowatch.utilities;
 
+import android.net.http.HttpResponseCache;
+
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
 import java.net.URL;
-import java.util.Scanner;
 
 /**
  * The utilities that were used on the Sunshine App, modified to fit my moviefile needs.
@@ -30,28 +30,55 @@ final class NetworkUtils implements APIKeys {
     private static final String TAG = NetworkUtils.class.getSimpleName();
 
     /**
-     * This method returns the entire result from the HTTP response.
+     * The one client shared by every request, so connections and TLS sessions get reused.
+     */
+    private static final HttpClient sHttpClient = new HttpClient(
+            HttpClient.DEFAULT_CONNECT_TIMEOUT_MILLIS, HttpClient.DEFAULT_READ_TIMEOUT_MILLIS);
+
+    /**
+     * This method streams the HTTP response directly into a JSON reader and lets the handler
+     * decode it, no String or JSON tree is ever built for the whole answer.
      *
-     * @param url The URL to fetch the HTTP response from.
-     * @return The contents of the HTTP response.
+     * @param url     The URL to fetch the HTTP response from.
+     * @param handler Decodes the JSON while it is being read from the connection.
+     * @return What the handler decoded from the response.
      * @throws IOException Related to network and stream reading
      */
-    static String getResponseFromHttpUrl(URL url) throws IOException {
-        HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
-        try {
-            InputStream in = urlConnection.getInputStream();
-
-            Scanner scanner = new Scanner(in);
-            scanner.useDelimiter("\\A");
-
-            boolean hasInput = scanner.hasNext();
-            if (hasInput) {
-                return scanner.next();
-            } else {
-                return null;
-            }
-        } finally {
-            urlConnection.disconnect();
-        }
+    static <T> T readJsonFromHttpUrl(URL url, HttpClient.JsonResponseHandler<T> handler)
+            throws IOException {
+        return sHttpClient.readJson(url, handler);
+    }
+
+    /**
+     * Changes the timeouts of the shared client.
+     *
+     * @param connectTimeoutMillis how long to wait for a connection, 0 waits forever.
+     * @param readTimeoutMillis    how long to wait for data on the socket, 0 waits forever.
+     */
+    static void setTimeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+        sHttpClient.setTimeouts(connectTimeoutMillis, readTimeoutMillis);
+    }
+
+    /**
+     * Installs a bounded disk cache for all the HTTP answers. It honors Cache-Control and
+     * revalidates stale answers with conditional requests, the least recently used answers are
+     * evicted when it is full.
+     *
+     * @param cacheDir where the answers are stored.
+     * @param maxBytes the maximum size of the cache.
+     * @throws IOException if the cache directory could not be used.
+     */
+    static void installHttpCache(File cacheDir, long maxBytes) throws IOException {
+        if (HttpResponseCache.getInstalled() == null)
+            HttpResponseCache.install(cacheDir, maxBytes);
+    }
+
+    /**
+     * Writes the pending cache operations to the file system.
+     */
+    static void flushHttpCache() {
+        HttpResponseCache cache = HttpResponseCache.getInstalled();
+        if (cache != null)
+            cache.flush();
     }
 }
\ No newline at end of file
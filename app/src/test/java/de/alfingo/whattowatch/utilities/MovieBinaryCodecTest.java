@@ -0,0 +1,227 @@
+package de.alfingo.whattowatch.utilities;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import de.alfingo.whattowatch.Movie;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round trips through the binary movie codec, and how its size compares to the JSON it replaced
+ * in the details cache.
+ */
+public class MovieBinaryCodecTest {
+
+    private static final int LIST_SIZE = 500;
+
+    @Test
+    public void fullMovie_roundTrips() throws Exception {
+        Movie movie = createMovie(550);
+
+        Movie decoded = MovieBinaryCodec.fromBytes(MovieBinaryCodec.toBytes(movie));
+
+        assertMovieEquals(movie, decoded);
+    }
+
+    @Test
+    public void emptyMovie_keepsNulls() throws Exception {
+        Movie movie = new Movie();
+
+        Movie decoded = MovieBinaryCodec.fromBytes(MovieBinaryCodec.toBytes(movie));
+
+        assertMovieEquals(movie, decoded);
+        assertNull(decoded.title);
+        assertNull(decoded.release_date);
+        assertNull(decoded.genre_ids);
+        assertNull(decoded.reviews);
+        assertNull(decoded.videos);
+    }
+
+    @Test
+    public void emptyLists_stayEmpty() throws Exception {
+        Movie movie = createMovie(1);
+        movie.genre_ids = new int[0];
+        movie.reviews = new ArrayList<>();
+        movie.videos = new ArrayList<>();
+
+        Movie decoded = MovieBinaryCodec.fromBytes(MovieBinaryCodec.toBytes(movie));
+
+        assertEquals(0, decoded.genre_ids.length);
+        assertTrue(decoded.reviews.isEmpty());
+        assertTrue(decoded.videos.isEmpty());
+    }
+
+    @Test
+    public void longAndUnicodeStrings_roundTrip() throws Exception {
+        Movie movie = createMovie(2);
+        StringBuilder longReview = new StringBuilder();
+        while (longReview.length() < 100000)
+            longReview.append("Ein gro\u00dfartiger Film, \u6620\u753b \ud83c\udfac! ");
+        movie.reviews.get(0).content = longReview.toString();
+        movie.title = "Am\u00e9lie \u2014 \u5929\u4f7f";
+
+        Movie decoded = MovieBinaryCodec.fromBytes(MovieBinaryCodec.toBytes(movie));
+
+        assertMovieEquals(movie, decoded);
+    }
+
+    @Test
+    public void extremeNumbers_roundTrip() throws Exception {
+        Movie movie = createMovie(Integer.MAX_VALUE);
+        movie.vote_count = -1;
+        movie.genre_ids = new int[]{0, -5, Integer.MIN_VALUE};
+        movie.release_date = new Date(-1000L);
+
+        Movie decoded = MovieBinaryCodec.fromBytes(MovieBinaryCodec.toBytes(movie));
+
+        assertMovieEquals(movie, decoded);
+    }
+
+    @Test
+    public void movieList_roundTrips() throws Exception {
+        List<Movie> movies = createMovies(LIST_SIZE);
+
+        List<Movie> decoded = MovieBinaryCodec.readMovies(
+                new DataInputStream(new ByteArrayInputStream(encodeBinary(movies))));
+
+        assertEquals(movies.size(), decoded.size());
+        for (int i = 0; i < movies.size(); i++)
+            assertMovieEquals(movies.get(i), decoded.get(i));
+    }
+
+    @Test(expected = IOException.class)
+    public void otherVersion_isNotRead() throws Exception {
+        byte[] bytes = MovieBinaryCodec.toBytes(createMovie(3));
+        bytes[0] = (byte) (MovieBinaryCodec.VERSION + 1);
+
+        MovieBinaryCodec.fromBytes(bytes);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedBytes_areNotRead() throws Exception {
+        byte[] bytes = MovieBinaryCodec.toBytes(createMovie(4));
+        byte[] truncated = new byte[bytes.length / 2];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+        MovieBinaryCodec.fromBytes(truncated);
+    }
+
+    @Test(expected = IOException.class)
+    public void hugeLength_isNotRead() throws Exception {
+        // the version, a movie ID of 0 and a title of about 2^31 bytes.
+        byte[] bytes = {1, 0, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07};
+
+        MovieBinaryCodec.fromBytes(bytes);
+    }
+
+    /**
+     * Only the size is compared. How fast the codecs are depends on the machine and on what
+     * else runs, so it is not asserted by a unit test.
+     */
+    @Test
+    public void binary_isSmallerThanJson() throws Exception {
+        List<Movie> movies = createMovies(LIST_SIZE);
+
+        int binarySize = encodeBinary(movies).length;
+        int jsonSize = encodeJson(movies).length;
+
+        assertTrue("binary " + binarySize + " bytes, json " + jsonSize + " bytes",
+                binarySize * 3 < jsonSize * 2);
+    }
+
+    private static byte[] encodeBinary(List<Movie> movies) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MovieBinaryCodec.writeMovies(new DataOutputStream(bytes), movies);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeJson(List<Movie> movies) throws IOException {
+        return MovieJsonCodec.GSON.toJson(movies.toArray(new Movie[movies.size()]))
+                .getBytes("UTF-8");
+    }
+
+    private static List<Movie> createMovies(int count) {
+        List<Movie> movies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            movies.add(createMovie(1000 + i));
+        return movies;
+    }
+
+    private static Movie createMovie(int id) {
+        Movie movie = new Movie();
+        movie.id = id;
+        movie.title = "Movie " + id;
+        movie.original_title = "Original movie " + id;
+        movie.original_language = "en";
+        movie.overview = "A movie about the number " + id + ", told in a hundred and twenty "
+                + "minutes with a lot of explosions and a happy end.";
+        movie.poster_path = "/poster" + id + ".jpg";
+        movie.backdrop_path = "/backdrop" + id + ".jpg";
+        movie.release_date = new Date(86400000L * (10000 + id % 5000));
+        movie.genre_ids = new int[]{28, 12, 878};
+        movie.popularity = id * 1.5;
+        movie.vote_count = id * 3;
+        movie.vote_average = 7.5f;
+        movie.favorite = id % 2 == 0;
+
+        movie.reviews = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Movie.Review review = new Movie.Review();
+            review.author = "Critic " + i;
+            review.content = "Review " + i + " of movie " + id + ", worth watching.";
+            movie.reviews.add(review);
+        }
+        movie.videos = new ArrayList<>();
+        Movie.MovieVideo video = new Movie.MovieVideo();
+        video.site = Movie.MovieVideo.YOUTUBE;
+        video.name = "Trailer " + id;
+        video.key = "key" + id;
+        movie.videos.add(video);
+        return movie;
+    }
+
+    private static void assertMovieEquals(Movie expected, Movie actual) {
+        assertEquals(expected.id, actual.id);
+        assertEquals(expected.title, actual.title);
+        assertEquals(expected.original_title, actual.original_title);
+        assertEquals(expected.original_language, actual.original_language);
+        assertEquals(expected.overview, actual.overview);
+        assertEquals(expected.poster_path, actual.poster_path);
+        assertEquals(expected.backdrop_path, actual.backdrop_path);
+        assertEquals(expected.release_date, actual.release_date);
+        assertArrayEquals(expected.genre_ids, actual.genre_ids);
+        assertEquals(expected.popularity, actual.popularity, 0);
+        assertEquals(expected.vote_count, actual.vote_count);
+        assertEquals(expected.vote_average, actual.vote_average, 0);
+        assertEquals(expected.favorite, actual.favorite);
+
+        if (expected.reviews == null) {
+            assertNull(actual.reviews);
+        } else {
+            assertEquals(expected.reviews.size(), actual.reviews.size());
+            for (int i = 0; i < expected.reviews.size(); i++) {
+                assertEquals(expected.reviews.get(i).author, actual.reviews.get(i).author);
+                assertEquals(expected.reviews.get(i).content, actual.reviews.get(i).content);
+            }
+        }
+        if (expected.videos == null) {
+            assertNull(actual.videos);
+        } else {
+            assertEquals(expected.videos.size(), actual.videos.size());
+            for (int i = 0; i < expected.videos.size(); i++) {
+                assertEquals(expected.videos.get(i).site, actual.videos.get(i).site);
+                assertEquals(expected.videos.get(i).name, actual.videos.get(i).name);
+                assertEquals(expected.videos.get(i).key, actual.videos.get(i).key);
+            }
+        }
+    }
+}